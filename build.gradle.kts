@@ -16,4 +16,49 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Benchmarks, kept out of the regular build:
+// - src/bench/java: tree generator and end-to-end scale benchmark. Run with: gradle benchmark -PbenchArgs="..."
+// - src/jmh/java: JMH microbenchmarks. Run with: gradle jmh
+//   Pass JMH options with -PjmhArgs, e.g. -PjmhArgs="ListingBenchmark -p shape=deep"
+sourceSets {
+    create("bench") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output + sourceSets["bench"].output
+        runtimeClasspath += sourceSets.main.get().output + sourceSets["bench"].output
+    }
+}
+
+val jmhImplementation by configurations.getting
+val jmhAnnotationProcessor by configurations.getting
+
+dependencies {
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.37")
+    jmhAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks, reporting throughput and allocation rate."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    doFirst { results.parentFile.mkdirs() }
+    // -prof gc adds gc.alloc.rate and gc.alloc.rate.norm (bytes per operation) to every result
+    args = listOf("-prof", "gc", "-rf", "json", "-rff", results.path) +
+            (findProperty("jmhArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("benchmark") {
+    group = "verification"
+    description = "Runs the end-to-end scale benchmark on generated trees."
+    classpath = sourceSets["bench"].runtimeClasspath
+    mainClass.set("org.example.components.ScaleBenchmark")
+    maxHeapSize = "2g"
+    args = listOf("--report", layout.buildDirectory.file("reports/bench/scale.csv").get().asFile.path) +
+            (findProperty("benchArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
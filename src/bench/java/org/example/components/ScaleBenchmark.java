@@ -0,0 +1,271 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end benchmark of a full sort cycle on generated trees: listing the root, listing subfolders,
+ * finding file extensions and sorting every file. Every phase reports wall time, entries per second,
+ * peak heap and GC time. The results are written as CSV, and can be compared against an earlier report.
+ * Run with: gradle benchmark -PbenchArgs="--files 10000,100000,1000000 --baseline old.csv"
+ */
+public class ScaleBenchmark {
+    private static final String HEADER = "fileCount,shape,phase,entries,wallMillis,entriesPerSecond,peakHeapBytes,gcMillis,gcCount";
+
+    private final List<String> rows = new ArrayList<>();
+    private final PrintStream out = System.out;
+
+    /**
+     * Measurements of a single phase.
+     */
+    private static class Phase {
+        private final String name;
+        private final long entries;
+        private final long wallNanos;
+        private final long peakHeapBytes;
+        private final long gcMillis;
+        private final long gcCount;
+
+        private Phase(String name, long entries, long wallNanos, long peakHeapBytes, long gcMillis, long gcCount) {
+            this.name = name;
+            this.entries = entries;
+            this.wallNanos = wallNanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.gcMillis = gcMillis;
+            this.gcCount = gcCount;
+        }
+
+        private double entriesPerSecond() {
+            return this.wallNanos == 0 ? 0 : this.entries * 1e9 / this.wallNanos;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] fileCounts = {10_000, 100_000};
+        String shape = "realistic";
+        long seed = 42;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+        Path report = Path.of("scale-report.csv");
+        Path baseline = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--files" -> {
+                    String[] counts = args[++i].split(",");
+                    fileCounts = new int[counts.length];
+                    for (int c = 0; c < counts.length; c++) {
+                        fileCounts[c] = Integer.parseInt(counts[c].trim());
+                    }
+                }
+                case "--shape" -> shape = args[++i];
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--dir" -> directory = Path.of(args[++i]);
+                case "--report" -> report = Path.of(args[++i]);
+                case "--baseline" -> baseline = Path.of(args[++i]);
+                default -> {
+                    System.out.println("Usage: ScaleBenchmark [--files 10000,100000] [--shape realistic|wide|deep] [--seed n] "
+                            + "[--threads n] [--dir folder] [--report file.csv] [--baseline earlier.csv]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        ScaleBenchmark benchmark = new ScaleBenchmark();
+        benchmark.rows.add("# java " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors() + " cores, max heap "
+                + Runtime.getRuntime().maxMemory() + ", threads " + threads + ", seed " + seed + ", " + Instant.now());
+        benchmark.rows.add(HEADER);
+        for (int fileCount : fileCounts) {
+            benchmark.run(createGenerator(shape, seed, fileCount), shape, fileCount, threads, directory);
+        }
+
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        Files.write(report, benchmark.rows);
+        System.out.println("Report written to " + report.toAbsolutePath());
+
+        if (baseline != null) {
+            benchmark.compare(baseline);
+        }
+    }
+
+    private static TreeGenerator createGenerator(String shape, long seed, int fileCount) {
+        TreeGenerator generator = switch (shape) {
+            case "wide" -> TreeGenerator.wide(seed);
+            case "deep" -> TreeGenerator.deep(seed);
+            case "realistic" -> new TreeGenerator(seed);
+            default -> throw new IllegalArgumentException("Unknown shape " + shape);
+        };
+        generator.setFileCount(fileCount);
+        return generator;
+    }
+
+    /**
+     * Generates a tree and runs every phase of a sort cycle on it.
+     * @param generator - The tree generator.
+     * @param shape - The name of the tree shape, for the report.
+     * @param fileCount - The number of files in the tree.
+     * @param threads - The scan and move parallelism.
+     * @param directory - The folder to generate the tree in.
+     * @throws IOException - If the tree cannot be generated or deleted.
+     */
+    private void run(TreeGenerator generator, String shape, int fileCount, int threads, Path directory) throws IOException {
+        this.out.printf("%n%,d files, %s tree%n", fileCount, shape);
+        TreeGenerator.Tree[] tree = new TreeGenerator.Tree[1];
+        report(fileCount, shape, measure("generate", () -> {
+            try {
+                tree[0] = generator.generate(directory);
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+            return (long) tree[0].getFileCount();
+        }));
+        this.out.printf("  %,d folders, %,d bytes in %s%n", tree[0].getFolderCount(), tree[0].getTotalBytes(), tree[0].getRoot());
+
+        try {
+            FileHandler fileHandler = new FileHandler(tree[0].getRoot().toString());
+            fileHandler.setUserExportFolderPath(tree[0].getRoot().toString());
+            fileHandler.setScanParallelism(threads);
+            fileHandler.setMoveParallelism(threads);
+
+            ScannedFile[][] topLevel = new ScannedFile[1][];
+            report(fileCount, shape, measure("getFilesAndFolders", () -> {
+                topLevel[0] = fileHandler.getFilesAndFolders();
+                return (long) topLevel[0].length;
+            }));
+            report(fileCount, shape, measure("getSubfolders", () -> (long) fileHandler.getSubfolders().length));
+
+            ArrayList<String> folders = new ArrayList<>();
+            ArrayList<String> files = new ArrayList<>();
+            for (ScannedFile entry : topLevel[0]) {
+                (entry.getType() == ScannedFile.Type.FOLDER ? folders : files).add(entry.getName());
+            }
+            ScannedFile[][] extensions = new ScannedFile[1][];
+            report(fileCount, shape, measure("getFileExtensions", () -> {
+                extensions[0] = fileHandler.getFileExtensions(folders.toArray(new String[0]), files.toArray(new String[0]));
+                long found = 0;
+                for (ScannedFile extension : extensions[0]) {
+                    found += extension.getFileCount();
+                }
+                return found;
+            }));
+
+            String[] chosen = new String[extensions[0].length];
+            for (int i = 0; i < chosen.length; i++) {
+                chosen[i] = extensions[0][i].getName();
+            }
+            report(fileCount, shape, measure("createFolderStructure", () -> (long) fileHandler.createFolderStructure(chosen).getMovedCount()));
+        } finally {
+            TreeGenerator.delete(tree[0].getRoot());
+        }
+    }
+
+    /**
+     * Runs a phase after a full GC, recording wall time, peak heap and GC activity.
+     * Peak heap is the sum of the peak usage of every heap pool, so it can slightly overstate the true peak.
+     * @param name - The name of the phase.
+     * @param phase - Runs the phase and returns the number of entries it processed.
+     * @return - The measurements.
+     */
+    private static Phase measure(String name, Supplier<Long> phase) {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcMillisBefore = gcMillis();
+        long gcCountBefore = gcCount();
+
+        long start = System.nanoTime();
+        long entries = phase.get();
+        long wallNanos = System.nanoTime() - start;
+
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return new Phase(name, entries, wallNanos, peakHeapBytes, gcMillis() - gcMillisBefore, gcCount() - gcCountBefore);
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private void report(int fileCount, String shape, Phase phase) {
+        this.out.printf("  %-22s %,10d entries %,10.1f ms %,12.0f/s  peak heap %,6d MB  GC %,6d ms (%d)%n",
+                phase.name, phase.entries, phase.wallNanos / 1e6, phase.entriesPerSecond(),
+                phase.peakHeapBytes / (1024 * 1024), phase.gcMillis, phase.gcCount);
+        this.rows.add(String.format(Locale.ROOT, "%d,%s,%s,%d,%.3f,%.1f,%d,%d,%d",
+                fileCount, shape, phase.name, phase.entries, phase.wallNanos / 1e6, phase.entriesPerSecond(),
+                phase.peakHeapBytes, phase.gcMillis, phase.gcCount));
+    }
+
+    /**
+     * Prints the change of every phase against an earlier report. Phases missing from either report are left out.
+     * @param baseline - The earlier report.
+     * @throws IOException - If the earlier report cannot be read.
+     */
+    private void compare(Path baseline) throws IOException {
+        Map<String, String[]> earlier = new HashMap<>();
+        for (String row : Files.readAllLines(baseline)) {
+            if (!row.startsWith("#") && !row.equals(HEADER)) {
+                String[] columns = row.split(",");
+                earlier.put(columns[0] + "," + columns[1] + "," + columns[2], columns);
+            }
+        }
+
+        this.out.printf("%nCompared to %s (negative is better)%n", baseline);
+        for (String row : this.rows) {
+            if (row.startsWith("#") || row.equals(HEADER)) {
+                continue;
+            }
+            String[] columns = row.split(",");
+            String[] before = earlier.get(columns[0] + "," + columns[1] + "," + columns[2]);
+            if (before == null) {
+                continue;
+            }
+            this.out.printf("  %,10d %-10s %-22s wall %s  peak heap %s  GC %s%n",
+                    Long.parseLong(columns[0]), columns[1], columns[2],
+                    change(before[4], columns[4]), change(before[6], columns[6]), change(before[7], columns[7]));
+        }
+    }
+
+    private static String change(String before, String after) {
+        double old = Double.parseDouble(before);
+        double now = Double.parseDouble(after);
+        if (old == 0) {
+            return now == 0 ? "    +0.0%" : "      new";
+        }
+        return String.format(Locale.ROOT, "%+8.1f%%", (now - old) * 100 / old);
+    }
+}
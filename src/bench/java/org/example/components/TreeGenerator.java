@@ -0,0 +1,278 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates realistic folder trees for benchmarks. The same seed and settings always give the same names, layout and sizes.
+ * Folders are created up to the maximum depth, with fanOut subfolders each, until there are enough to hold the files
+ * at filesPerFolder on average; breadth-first by default, or depth-first for trees of long chains. Extensions follow a Zipf distribution, so a few are common and most are rare,
+ * and file sizes follow a log-normal distribution around the median. Files are written sparse, so a large tree takes
+ * little disk space while still reporting realistic sizes.
+ */
+public final class TreeGenerator {
+    private static final String[] COMMON_EXTENSIONS = {
+            ".jpg", ".pdf", ".txt", ".png", ".docx", ".mp3", ".xlsx", ".zip", ".mp4", ".html", ".csv", ".java"
+    };
+
+    private final long seed;
+    private int fileCount = 10_000;
+    private int maxDepth = 6;
+    private int fanOut = 8;
+    private int filesPerFolder = 50;
+    private boolean depthFirst;
+    private int extensionCount = 40;
+    private double extensionSkew = 1.0;
+    private long medianFileSize = 32 * 1024;
+    private double fileSizeSpread = 1.5;
+
+    /**
+     * Summary of a generated tree.
+     */
+    public static class Tree {
+        private final Path root;
+        private final int fileCount;
+        private final int folderCount;
+        private final long totalBytes;
+
+        private Tree(Path root, int fileCount, int folderCount, long totalBytes) {
+            this.root = root;
+            this.fileCount = fileCount;
+            this.folderCount = folderCount;
+            this.totalBytes = totalBytes;
+        }
+
+        public Path getRoot() {
+            return root;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        public int getFolderCount() {
+            return folderCount;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Constructor for TreeGenerator class.
+     * @param seed - The random seed.
+     */
+    public TreeGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Settings for trees with one level of folders, each holding many files.
+     * @param seed - The random seed.
+     * @return - The generator.
+     */
+    public static TreeGenerator wide(long seed) {
+        TreeGenerator generator = new TreeGenerator(seed);
+        generator.setMaxDepth(1);
+        generator.setFanOut(Integer.MAX_VALUE);
+        generator.setFilesPerFolder(500);
+        return generator;
+    }
+
+    /**
+     * Settings for trees of long chains of nested folders, each holding few files.
+     * @param seed - The random seed.
+     * @return - The generator.
+     */
+    public static TreeGenerator deep(long seed) {
+        TreeGenerator generator = new TreeGenerator(seed);
+        generator.setMaxDepth(64);
+        generator.setFanOut(2);
+        generator.setFilesPerFolder(4);
+        generator.setDepthFirst(true);
+        return generator;
+    }
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    public void setFilesPerFolder(int filesPerFolder) {
+        this.filesPerFolder = filesPerFolder;
+    }
+
+    /**
+     * Sets whether folders are created depth-first, filling the deepest levels before the shallow ones.
+     * @param depthFirst - True for depth-first, false for breadth-first.
+     */
+    public void setDepthFirst(boolean depthFirst) {
+        this.depthFirst = depthFirst;
+    }
+
+    public void setExtensionCount(int extensionCount) {
+        this.extensionCount = extensionCount;
+    }
+
+    /**
+     * Sets the Zipf exponent of the extension distribution; 0 makes every extension equally common.
+     * @param extensionSkew - The exponent.
+     */
+    public void setExtensionSkew(double extensionSkew) {
+        this.extensionSkew = extensionSkew;
+    }
+
+    public void setMedianFileSize(long medianFileSize) {
+        this.medianFileSize = medianFileSize;
+    }
+
+    /**
+     * Sets the standard deviation of the natural logarithm of file sizes; 0 makes every file the median size.
+     * @param fileSizeSpread - The spread.
+     */
+    public void setFileSizeSpread(double fileSizeSpread) {
+        this.fileSizeSpread = fileSizeSpread;
+    }
+
+    /**
+     * Generates unique file names, without creating anything on disk.
+     * About one in twenty names has no extension and one in ten has an upper-case extension.
+     * @return - The file names.
+     */
+    public String[] fileNames() {
+        Random random = new Random(this.seed);
+        String[] extensions = extensions();
+        double[] cumulativeWeights = zipfWeights();
+        String[] names = new String[this.fileCount];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = fileName(i, random, extensions, cumulativeWeights);
+        }
+        return names;
+    }
+
+    /**
+     * Creates the tree in a new folder.
+     * @param parent - The folder to create the tree in.
+     * @return - The generated tree.
+     * @throws IOException - If the tree cannot be created.
+     */
+    public Tree generate(Path parent) throws IOException {
+        Files.createDirectories(parent);
+        Path root = Files.createTempDirectory(parent, "tree-");
+        Random random = new Random(this.seed);
+        String[] extensions = extensions();
+        double[] cumulativeWeights = zipfWeights();
+
+        // Breadth-first fills shallow levels before deeper ones; depth-first follows one branch down first
+        int wantedFolders = Math.max(1, this.fileCount / Math.max(1, this.filesPerFolder));
+        List<Path> folders = new ArrayList<>();
+        folders.add(root);
+        ArrayDeque<Path> queue = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        queue.add(root);
+        depths.add(0);
+        while (folders.size() < wantedFolders && !queue.isEmpty()) {
+            Path folder = this.depthFirst ? queue.pollLast() : queue.pollFirst();
+            int depth = this.depthFirst ? depths.pollLast() : depths.pollFirst();
+            if (depth >= this.maxDepth) {
+                continue;
+            }
+            for (int i = 0; i < this.fanOut && folders.size() < wantedFolders; i++) {
+                Path child = Files.createDirectory(folder.resolve("folder-" + Integer.toString(folders.size(), 36)));
+                folders.add(child);
+                queue.add(child);
+                depths.add(depth + 1);
+            }
+        }
+
+        long totalBytes = 0;
+        for (int i = 0; i < this.fileCount; i++) {
+            Path folder = folders.get(random.nextInt(folders.size()));
+            long size = fileSize(random);
+            try (RandomAccessFile file = new RandomAccessFile(folder.resolve(fileName(i, random, extensions, cumulativeWeights)).toFile(), "rw")) {
+                file.setLength(size);
+            }
+            totalBytes += size;
+        }
+
+        return new Tree(root, this.fileCount, folders.size() - 1, totalBytes);
+    }
+
+    /**
+     * Deletes a generated tree, including anything moved into it since.
+     * @param root - The root of the tree.
+     * @throws IOException - If the tree cannot be deleted.
+     */
+    public static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private String fileName(int index, Random random, String[] extensions, double[] cumulativeWeights) {
+        String extension = extensions[pick(random.nextDouble(), cumulativeWeights)];
+        if (random.nextInt(20) == 0) {
+            extension = "";
+        } else if (random.nextInt(10) == 0) {
+            extension = extension.toUpperCase();
+        }
+        return "file-" + Integer.toString(index, 36) + extension;
+    }
+
+    private long fileSize(Random random) {
+        if (this.medianFileSize <= 0) {
+            return 0;
+        }
+        return Math.round(this.medianFileSize * Math.exp(random.nextGaussian() * this.fileSizeSpread));
+    }
+
+    private String[] extensions() {
+        String[] extensions = new String[Math.max(1, this.extensionCount)];
+        for (int i = 0; i < extensions.length; i++) {
+            extensions[i] = i < COMMON_EXTENSIONS.length ? COMMON_EXTENSIONS[i] : ".x" + Integer.toString(i, 36);
+        }
+        return extensions;
+    }
+
+    /**
+     * Computes the cumulative Zipf weights of the extensions, normalized to end at 1.
+     * @return - The cumulative weights.
+     */
+    private double[] zipfWeights() {
+        double[] weights = new double[Math.max(1, this.extensionCount)];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += 1 / Math.pow(i + 1, this.extensionSkew);
+            weights[i] = sum;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= sum;
+        }
+        return weights;
+    }
+
+    private static int pick(double value, double[] cumulativeWeights) {
+        int index = Arrays.binarySearch(cumulativeWeights, value);
+        index = index < 0 ? -index - 1 : index;
+        return Math.min(index, cumulativeWeights.length - 1);
+    }
+}
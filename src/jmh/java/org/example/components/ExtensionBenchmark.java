@@ -0,0 +1,73 @@
+package org.example.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extension parsing, case folding and indexing, measured per batch of file names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtensionBenchmark {
+    @Param({"10000"})
+    public int fileCount;
+
+    @Param({"4", "200"})
+    public int extensionCount;
+
+    private String[] fileNames;
+    private String[] extensions;
+
+    @Setup
+    public void setUp() {
+        TreeGenerator generator = new TreeGenerator(42);
+        generator.setFileCount(this.fileCount);
+        generator.setExtensionCount(this.extensionCount);
+        this.fileNames = generator.fileNames();
+        this.extensions = new String[this.fileNames.length];
+        for (int i = 0; i < this.fileNames.length; i++) {
+            this.extensions[i] = DirectoryWalker.getFileExtension(this.fileNames[i]);
+        }
+    }
+
+    @Benchmark
+    public void parseExtensions(Blackhole blackhole) {
+        for (String fileName : this.fileNames) {
+            blackhole.consume(DirectoryWalker.getFileExtension(fileName));
+        }
+    }
+
+    @Benchmark
+    public void normalizeExtensions(Blackhole blackhole) {
+        for (String extension : this.extensions) {
+            blackhole.consume(ExtensionIndex.normalize(extension));
+        }
+    }
+
+    @Benchmark
+    public ExtensionIndex indexFiles() {
+        ExtensionIndex index = new ExtensionIndex();
+        for (int i = 0; i < this.fileNames.length; i++) {
+            if (!this.extensions[i].isEmpty()) {
+                index.add(this.fileNames[i], this.extensions[i], i);
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Directory listing and the full extension scan over generated trees. Once warmed up the tree is in the
+ * page cache, so this measures the scanner rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+    @Param({"20000"})
+    public int fileCount;
+
+    @Param({"4", "200"})
+    public int extensionCount;
+
+    @Param({"wide", "deep"})
+    public String shape;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path root;
+    private FileHandler fileHandler;
+    private String[] folders;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        TreeGenerator generator = this.shape.equals("deep") ? TreeGenerator.deep(42) : TreeGenerator.wide(42);
+        generator.setFileCount(this.fileCount);
+        generator.setExtensionCount(this.extensionCount);
+        this.root = generator.generate(Path.of(System.getProperty("java.io.tmpdir"))).getRoot();
+        this.fileHandler = new FileHandler(this.root.toString());
+        this.fileHandler.setScanParallelism(this.parallelism);
+        this.folders = this.root.toFile().list();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        TreeGenerator.delete(this.root);
+    }
+
+    @Benchmark
+    public DirectoryWalker.WalkResult listDirectories() {
+        return new DirectoryWalker(this.parallelism).walk(List.of(this.root.toFile()));
+    }
+
+    @Benchmark
+    public ScannedFile[] scanExtensions() {
+        return this.fileHandler.getFileExtensions(this.folders, new String[0]);
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Working out the destination of every scanned file, without moving anything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovePlanBenchmark {
+    @Param({"20000"})
+    public int fileCount;
+
+    @Param({"4", "200"})
+    public int extensionCount;
+
+    private Path root;
+    private FileHandler fileHandler;
+    private String[] extensions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        TreeGenerator generator = TreeGenerator.wide(42);
+        generator.setFileCount(this.fileCount);
+        generator.setExtensionCount(this.extensionCount);
+        this.root = generator.generate(Path.of(System.getProperty("java.io.tmpdir"))).getRoot();
+        this.fileHandler = new FileHandler(this.root.toString());
+        this.fileHandler.setUserExportFolderPath(this.root.toString());
+        ScannedFile[] found = this.fileHandler.getFileExtensions(this.root.toFile().list(), new String[0]);
+        this.extensions = new String[found.length];
+        for (int i = 0; i < found.length; i++) {
+            this.extensions[i] = found[i].getName();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        TreeGenerator.delete(this.root);
+    }
+
+    @Benchmark
+    public MovePlan planSort() {
+        return this.fileHandler.planSort(this.extensions);
+    }
+}
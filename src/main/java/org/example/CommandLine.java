@@ -0,0 +1,685 @@
+package org.example;
+
+import org.example.components.CollisionResolver;
+import org.example.components.DuplicateFinder;
+import org.example.components.ExtensionIndex;
+import org.example.components.FileHandler;
+import org.example.components.FolderWatcher;
+import org.example.components.Metrics;
+import org.example.components.RecordingAnalyzer;
+import org.example.components.MovePlan;
+import org.example.components.MoveResult;
+import org.example.components.ScanListener;
+import org.example.components.ScanOptions;
+import org.example.components.ScannedFile;
+import org.example.components.SortRules;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless command-line mode. Drives FileHandler directly and never touches AWT or Swing,
+ * so it runs on servers without a display and starts as fast as the JVM allows.
+ */
+public class CommandLine {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_MOVE_FAILURES = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_NOT_FOUND = 3;
+    public static final int EXIT_IO_ERROR = 4;
+    public static final int EXIT_SCAN_TRUNCATED = 5;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar FileSorter.jar <folder> [<output folder>] [options]",
+            "       java -jar FileSorter.jar --analyze <recording.jfr> [--top <n>]",
+            "Sorts every file below <folder> into <output folder>/Output/<ext> files,",
+            "or summarizes a Flight Recorder recording of an earlier run.",
+            "",
+            "Options:",
+            "  --output <folder>    Folder to create the Output folder in (default: <folder>)",
+            "  --ext <.a,.b,...>    Only sort these file extensions (default: every extension found)",
+            "  --threads <n>        Number of threads used to scan and to move (default: number of cores)",
+            "  --exclude <globs>    Leave out files and folders matching these comma-separated patterns, e.g. .git,node_modules,build/**",
+            "                       (names, or paths relative to <folder>); excluded folders are never listed",
+            "  --include <globs>    Only sort files matching these comma-separated patterns, e.g. *.jpg,*.png",
+            "  --max-depth <n>      Only scan <n> levels deep, 1 for the entries directly inside <folder>",
+            "  --max-entries <n>    Stop listing further folders once <n> entries were listed",
+            "  --links <mode>       follow symbolic links (default; each folder is walked once, so loops end) or skip them",
+            "  --dry-run            Scan and report what would be moved, without moving anything or holding the file list in memory",
+            "  --plan               Scan and list how many files and bytes would go into each folder, without moving anything",
+            "  --json               Print progress and the summary as JSON lines",
+            "  --index              Reuse the on-disk scan index, so only changed folders are listed",
+            "  --rules <file>       Sort by the rules in <file>, one per line: <folder> = <.ext|glob|*>,... [; date=year|month] [; size=<limit>,...]",
+            "  --sniff              Sort files without an extension, or with .dat, .bin or .tmp, by the type their content shows",
+            "  --duplicates <mode>  Look for byte-identical files: report lists them without moving anything,",
+            "                       skip leaves copies in place, link hard-links copies to the moved original",
+            "  --collisions <mode>  When a file's name is taken at its destination: rename it to \"name (2).ext\" (default),",
+            "                       skip it, or overwrite the other file if this one is newer (--undo cannot restore overwritten files)",
+            "  --verify             Verify files copied to another volume by checksum before deleting them",
+            "  --watch              Keep running and sort files as they arrive in <folder>",
+            "  --resume             Finish an interrupted sort into <output folder> from its journal, without rescanning",
+            "  --undo               Move the files of the last sort into <output folder> back to where they were",
+            "  --no-journal         Do not journal moves (the sort can then not be resumed or undone)",
+            "  --jmx                Publish scan and sort metrics over JMX, e.g. for jconsole",
+            "  --analyze <file>     Print where the time went in a recording made with -XX:StartFlightRecording",
+            "  --top <n>            Number of slowest directories and moves --analyze lists (default: 10)",
+            "  --help               Show this help",
+            "",
+            "Exit codes: 0 ok, 1 some files could not be moved, 2 bad arguments, 3 folder not found, 4 I/O error,",
+            "            5 the scan stopped at --max-entries, so only part of <folder> was sorted");
+
+    private final PrintStream out;
+    private String scanFolder;
+    private String outputFolder;
+    private final Set<String> fileExtensions = new LinkedHashSet<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final ScanOptions scanOptions = new ScanOptions();
+    private boolean dryRun;
+    private boolean json;
+    private boolean useIndex;
+    private boolean verify;
+    private boolean sniff;
+    private String rulesFile;
+    private SortRules sortRules = SortRules.NONE;
+    private boolean reportDuplicates;
+    private boolean showPlan;
+    private DuplicateFinder.Policy duplicatePolicy = DuplicateFinder.Policy.MOVE;
+    private CollisionResolver.Policy collisionPolicy = CollisionResolver.Policy.RENAME;
+    private boolean watch;
+    private boolean jmx;
+    private boolean resume;
+    private boolean undo;
+    private boolean journal = true;
+    private String recording;
+    private int top = 10;
+    // Set by the scan listeners once a scan runs out of its --max-entries budget
+    private volatile boolean scanTruncated;
+
+    private CommandLine(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Runs the command line with the given arguments.
+     * @param args - The command-line arguments.
+     * @param out - Where progress and the summary are printed.
+     * @return - The process exit code.
+     */
+    public static int run(String[] args, PrintStream out) {
+        CommandLine commandLine = new CommandLine(out);
+        try {
+            if (!commandLine.parse(args)) {
+                out.println(USAGE);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException exception) {
+            out.println("Error: " + exception.getMessage());
+            out.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (!commandLine.json) {
+            return commandLine.execute();
+        }
+
+        // Keep the JSON lines on out free of the plain-text messages the components print, e.g. on errors
+        PrintStream systemOut = System.out;
+        System.setOut(System.err);
+        try {
+            return commandLine.execute();
+        } finally {
+            System.setOut(systemOut);
+        }
+    }
+
+    /**
+     * Parses the arguments into this command line.
+     * @param args - The command-line arguments.
+     * @return - False if only the help text was asked for.
+     * @throws IllegalArgumentException - If the arguments are invalid.
+     */
+    private boolean parse(String[] args) {
+        ArrayList<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--help", "-h" -> {
+                    return false;
+                }
+                case "--output" -> this.outputFolder = requireValue(args, ++i, "--output");
+                case "--ext" -> {
+                    for (String extension : requireValue(args, ++i, "--ext").split(",")) {
+                        String trimmed = extension.trim();
+                        if (!trimmed.isEmpty()) {
+                            this.fileExtensions.add(ExtensionIndex.normalize(trimmed.startsWith(".") ? trimmed : "." + trimmed));
+                        }
+                    }
+                }
+                case "--threads" -> {
+                    try {
+                        this.threads = Integer.parseInt(requireValue(args, ++i, "--threads"));
+                    } catch (NumberFormatException exception) {
+                        throw new IllegalArgumentException("--threads needs a number");
+                    }
+                    if (this.threads < 1) {
+                        throw new IllegalArgumentException("--threads must be at least 1");
+                    }
+                }
+                case "--exclude" -> splitPatterns(requireValue(args, ++i, "--exclude")).forEach(this.scanOptions::addExclude);
+                case "--include" -> splitPatterns(requireValue(args, ++i, "--include")).forEach(this.scanOptions::addInclude);
+                case "--max-depth" -> {
+                    try {
+                        this.scanOptions.setMaxDepth(Integer.parseInt(requireValue(args, ++i, "--max-depth")));
+                    } catch (NumberFormatException exception) {
+                        throw new IllegalArgumentException("--max-depth needs a number");
+                    }
+                }
+                case "--max-entries" -> {
+                    try {
+                        this.scanOptions.setMaxEntries(Long.parseLong(requireValue(args, ++i, "--max-entries")));
+                    } catch (NumberFormatException exception) {
+                        throw new IllegalArgumentException("--max-entries needs a number");
+                    }
+                }
+                case "--links" -> {
+                    switch (requireValue(args, ++i, "--links")) {
+                        case "follow" -> this.scanOptions.setLinkPolicy(ScanOptions.LinkPolicy.FOLLOW);
+                        case "skip" -> this.scanOptions.setLinkPolicy(ScanOptions.LinkPolicy.SKIP);
+                        default -> throw new IllegalArgumentException("--links needs follow or skip");
+                    }
+                }
+                case "--dry-run" -> this.dryRun = true;
+                case "--plan" -> {
+                    this.showPlan = true;
+                    this.dryRun = true;
+                }
+                case "--json" -> this.json = true;
+                case "--index" -> this.useIndex = true;
+                case "--rules" -> this.rulesFile = requireValue(args, ++i, "--rules");
+                case "--sniff" -> this.sniff = true;
+                case "--duplicates" -> {
+                    switch (requireValue(args, ++i, "--duplicates")) {
+                        case "report" -> {
+                            this.reportDuplicates = true;
+                            this.dryRun = true;
+                        }
+                        case "skip" -> this.duplicatePolicy = DuplicateFinder.Policy.SKIP;
+                        case "link" -> this.duplicatePolicy = DuplicateFinder.Policy.LINK;
+                        default -> throw new IllegalArgumentException("--duplicates needs report, skip or link");
+                    }
+                }
+                case "--collisions" -> {
+                    switch (requireValue(args, ++i, "--collisions")) {
+                        case "rename" -> this.collisionPolicy = CollisionResolver.Policy.RENAME;
+                        case "skip" -> this.collisionPolicy = CollisionResolver.Policy.SKIP;
+                        case "overwrite" -> this.collisionPolicy = CollisionResolver.Policy.OVERWRITE_IF_NEWER;
+                        default -> throw new IllegalArgumentException("--collisions needs rename, skip or overwrite");
+                    }
+                }
+                case "--verify" -> this.verify = true;
+                case "--watch" -> this.watch = true;
+                case "--jmx" -> this.jmx = true;
+                case "--resume" -> this.resume = true;
+                case "--undo" -> this.undo = true;
+                case "--no-journal" -> this.journal = false;
+                case "--analyze" -> this.recording = requireValue(args, ++i, "--analyze");
+                case "--top" -> {
+                    try {
+                        this.top = Integer.parseInt(requireValue(args, ++i, "--top"));
+                    } catch (NumberFormatException exception) {
+                        throw new IllegalArgumentException("--top needs a number");
+                    }
+                }
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    positional.add(args[i]);
+                }
+            }
+        }
+
+        if (this.recording != null) {
+            return true;
+        }
+        if (positional.isEmpty() || positional.size() > 2) {
+            throw new IllegalArgumentException("Expected a folder to sort");
+        }
+        this.scanFolder = new File(positional.get(0)).getAbsolutePath();
+        if (positional.size() == 2) {
+            this.outputFolder = positional.get(1);
+        }
+        if (this.outputFolder == null) {
+            this.outputFolder = this.scanFolder;
+        }
+        if (this.resume && this.undo) {
+            throw new IllegalArgumentException("--resume and --undo cannot be combined");
+        }
+        this.outputFolder = new File(this.outputFolder).getAbsolutePath();
+        return true;
+    }
+
+    /**
+     * Splits a comma-separated list of glob patterns, leaving commas within {a,b} groups alone.
+     * @param patterns - The list.
+     * @return - The patterns, without empty ones.
+     */
+    private static List<String> splitPatterns(String patterns) {
+        ArrayList<String> split = new ArrayList<>();
+        int groupDepth = 0;
+        int start = 0;
+        for (int i = 0; i <= patterns.length(); i++) {
+            char c = i < patterns.length() ? patterns.charAt(i) : ',';
+            if (c == '{') {
+                groupDepth++;
+            } else if (c == '}') {
+                groupDepth = Math.max(0, groupDepth - 1);
+            } else if (c == ',' && groupDepth == 0) {
+                String pattern = patterns.substring(start, i).trim();
+                if (!pattern.isEmpty()) {
+                    split.add(pattern);
+                }
+                start = i + 1;
+            }
+        }
+        return split;
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    /**
+     * Scans, then sorts or reports, according to the parsed options.
+     * @return - The process exit code.
+     */
+    private int execute() {
+        if (this.recording != null) {
+            try {
+                RecordingAnalyzer.summarize(Path.of(this.recording), this.top, this.out);
+                return EXIT_OK;
+            } catch (FileNotFoundException | NoSuchFileException exception) {
+                printError("Recording not found: " + this.recording);
+                return EXIT_NOT_FOUND;
+            } catch (IOException exception) {
+                printError("Error reading recording: " + exception);
+                return EXIT_IO_ERROR;
+            }
+        }
+
+        if (!new File(this.scanFolder).isDirectory()) {
+            printError("Folder not found: " + this.scanFolder);
+            return EXIT_NOT_FOUND;
+        }
+        if (!new File(this.outputFolder).isDirectory()) {
+            printError("Output folder not found: " + this.outputFolder);
+            return EXIT_NOT_FOUND;
+        }
+
+        if (this.rulesFile != null) {
+            try {
+                this.sortRules = SortRules.load(Path.of(this.rulesFile));
+            } catch (FileNotFoundException | NoSuchFileException exception) {
+                printError("Rules file not found: " + this.rulesFile);
+                return EXIT_NOT_FOUND;
+            } catch (IOException exception) {
+                printError("Error reading rules file: " + exception);
+                return EXIT_IO_ERROR;
+            } catch (IllegalArgumentException exception) {
+                printError("Error in rules file: " + exception.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+
+        // Off by default, since starting the MBean server slows down short runs
+        if (this.jmx) {
+            Metrics.register();
+        }
+
+        if (this.watch) {
+            return watch();
+        }
+
+        FileHandler fileHandler = new FileHandler(this.scanFolder);
+        fileHandler.setUserExportFolderPath(this.outputFolder);
+        fileHandler.setScanParallelism(this.threads);
+        fileHandler.setScanOptions(this.scanOptions);
+        fileHandler.setMoveParallelism(this.threads);
+        fileHandler.setScanIndexEnabled(this.useIndex);
+        fileHandler.setVerifyCrossDeviceMoves(this.verify);
+        fileHandler.setContentSniffingEnabled(this.sniff);
+        fileHandler.setDuplicatePolicy(this.duplicatePolicy);
+        fileHandler.setSortRules(this.sortRules);
+        fileHandler.setCollisionPolicy(this.collisionPolicy);
+        fileHandler.setMoveJournalEnabled(this.journal);
+
+        if (this.resume || this.undo) {
+            return replayJournal(fileHandler);
+        }
+
+        // Scan every top-level entry, leaving out a previous Output folder
+        ArrayList<ScannedFile> entries = new ArrayList<>();
+        ArrayList<String> folders = new ArrayList<>();
+        ArrayList<String> files = new ArrayList<>();
+        File previousOutput = new File(this.outputFolder, "Output");
+        fileHandler.streamFilesAndFolders(progressListener("scan")).forEach(entry -> {
+            if (entry.getType() == ScannedFile.Type.FOLDER) {
+                if (!new File(this.scanFolder, entry.getName()).equals(previousOutput)) {
+                    entries.add(entry);
+                    folders.add(entry.getName());
+                }
+            } else {
+                entries.add(entry);
+                files.add(entry.getName());
+            }
+        });
+
+        long scanStart = System.nanoTime();
+        // Duplicates and destinations are worked out from indexed files, so reporting them needs the full scan
+        ScannedFile[] found = this.dryRun && !this.reportDuplicates && !this.showPlan
+                ? countFileExtensions(fileHandler, folders.toArray(new String[0]), files.toArray(new String[0]))
+                : fileHandler.getFileExtensions(entries.toArray(new ScannedFile[0]), progressListener("scan"));
+        long scanMillis = (System.nanoTime() - scanStart) / 1_000_000;
+
+        ArrayList<ScannedFile> chosen = new ArrayList<>();
+        for (ScannedFile extension : found) {
+            if (this.fileExtensions.isEmpty() || this.fileExtensions.contains(extension.getName())) {
+                chosen.add(extension);
+            }
+        }
+
+        String[] extensions = new String[chosen.size()];
+        for (int i = 0; i < extensions.length; i++) {
+            extensions[i] = chosen.get(i).getName();
+        }
+        MoveResult result = MoveResult.empty();
+        if (this.reportDuplicates) {
+            printDuplicates(fileHandler.findDuplicates(extensions, progressListener("hash")));
+        } else if (this.showPlan) {
+            printPlan(fileHandler.planSort(extensions));
+        } else if (!this.dryRun && !chosen.isEmpty()) {
+            result = fileHandler.createFolderStructure(extensions, progressListener("move"));
+        }
+
+        printSummary(scanMillis, chosen, result);
+        if (result.getFailedCount() > 0) {
+            return EXIT_MOVE_FAILURES;
+        }
+        return this.scanTruncated ? EXIT_SCAN_TRUNCATED : EXIT_OK;
+    }
+
+    /**
+     * Counts the files and bytes per file extension while streaming the tree, so a dry run never holds
+     * the list of all files in memory.
+     * @param fileHandler - The file handler set up for the scan folder.
+     * @param chosenFolders - The folders to scan.
+     * @param chosenFiles - The files to scan.
+     * @return - A ScannedFile per file extension, with its file count and total size.
+     */
+    private ScannedFile[] countFileExtensions(FileHandler fileHandler, String[] chosenFolders, String[] chosenFiles) {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        fileHandler.streamFiles(chosenFolders, chosenFiles, progressListener("scan")).forEach(file -> {
+            String extension = fileHandler.getFileType(file);
+            if (!extension.isEmpty()) {
+                long[] total = totals.computeIfAbsent(ExtensionIndex.normalize(extension), key -> new long[2]);
+                total[0]++;
+                total[1] += file.getTotalBytes();
+            }
+        });
+
+        ArrayList<ScannedFile> found = new ArrayList<>();
+        totals.forEach((extension, total) -> found.add(new ScannedFile(extension, ScannedFile.Type.EXTENSION, (int) total[0], total[1])));
+        return found.toArray(new ScannedFile[0]);
+    }
+
+    /**
+     * Resumes or undoes the last journaled sort into the output folder.
+     * @param fileHandler - The file handler set up for the output folder.
+     * @return - The process exit code.
+     */
+    private int replayJournal(FileHandler fileHandler) {
+        MoveResult result;
+        try {
+            result = this.undo ? fileHandler.undoMoves(progressListener("undo")) : fileHandler.resumeMoves(progressListener("resume"));
+        } catch (FileNotFoundException exception) {
+            printError(exception.getMessage());
+            return EXIT_NOT_FOUND;
+        } catch (IOException exception) {
+            printError("Error reading move journal: " + exception);
+            return EXIT_IO_ERROR;
+        }
+
+        printSummary(-1, List.of(), result);
+        return result.getFailedCount() > 0 ? EXIT_MOVE_FAILURES : EXIT_OK;
+    }
+
+    /**
+     * Runs the watch-folder mode until the process is stopped.
+     * @return - The process exit code.
+     */
+    private int watch() {
+        try (FolderWatcher watcher = new FolderWatcher(Path.of(this.scanFolder), Path.of(this.outputFolder),
+                this.fileExtensions.toArray(new String[0]), this.threads)) {
+            watcher.setSortRules(this.sortRules);
+            watcher.setCollisionPolicy(this.collisionPolicy);
+            if (!this.json) {
+                this.out.println("Watching " + this.scanFolder + " (Ctrl+C to stop)");
+            }
+            watcher.run(ScanListener.NONE);
+            return EXIT_OK;
+        } catch (IOException exception) {
+            printError("Error watching folder: " + exception);
+            return EXIT_IO_ERROR;
+        }
+    }
+
+    /**
+     * Creates a listener that prints the number of processed entries at most once per PROGRESS_INTERVAL_MILLIS.
+     * @param phase - The name of the phase, e.g. "scan".
+     * @return - The progress listener.
+     */
+    private ScanListener progressListener(String phase) {
+        long start = System.currentTimeMillis();
+        AtomicLong entries = new AtomicLong();
+        AtomicLong lastReport = new AtomicLong(start);
+
+        return new ScanListener() {
+            @Override
+            public void onEntriesScanned(int count) {
+                long total = entries.addAndGet(count);
+                long now = System.currentTimeMillis();
+                long last = lastReport.get();
+                if (now - last >= PROGRESS_INTERVAL_MILLIS && lastReport.compareAndSet(last, now)) {
+                    if (json) {
+                        out.printf(Locale.ROOT, "{\"event\":\"progress\",\"phase\":\"%s\",\"entries\":%d,\"elapsedMillis\":%d}%n", phase, total, now - start);
+                    } else {
+                        out.printf("%s: %,d entries, %,d ms%n", phase, total, now - start);
+                    }
+                }
+            }
+
+            @Override
+            public void onScanTruncated(long maxEntries) {
+                scanTruncated = true;
+            }
+        };
+    }
+
+    /**
+     * Prints what was found and what was moved.
+     * @param scanMillis - The time the scan took, or -1 if nothing was scanned.
+     * @param chosen - The file extensions chosen for sorting.
+     * @param result - The outcome of the moves.
+     */
+    private void printSummary(long scanMillis, List<ScannedFile> chosen, MoveResult result) {
+        List<MoveResult.Outcome> failures = result.getOutcomes(MoveResult.Status.FAILED);
+
+        if (this.json) {
+            StringBuilder line = new StringBuilder("{\"event\":\"summary\"");
+            line.append(",\"mode\":").append(quote(this.undo ? "undo" : this.resume ? "resume" : "sort"));
+            line.append(",\"dryRun\":").append(this.dryRun);
+            if (scanMillis >= 0) {
+                line.append(",\"scanMillis\":").append(scanMillis);
+                line.append(",\"truncated\":").append(this.scanTruncated);
+            }
+            line.append(",\"extensions\":[");
+            for (int i = 0; i < chosen.size(); i++) {
+                ScannedFile extension = chosen.get(i);
+                line.append(i == 0 ? "" : ",")
+                        .append("{\"extension\":").append(quote(extension.getName()))
+                        .append(",\"files\":").append(extension.getFileCount())
+                        .append(",\"bytes\":").append(extension.getTotalBytes()).append('}');
+            }
+            line.append("],\"moved\":").append(result.getMovedCount());
+            line.append(",\"skipped\":").append(result.getSkippedCount());
+            line.append(",\"failed\":").append(result.getFailedCount());
+            line.append(",\"bytesMoved\":").append(result.getBytesMoved());
+            line.append(",\"moveMillis\":").append(result.getElapsedNanos() / 1_000_000);
+            line.append(",\"failures\":[");
+            for (int i = 0; i < failures.size(); i++) {
+                MoveResult.Outcome failure = failures.get(i);
+                line.append(i == 0 ? "" : ",")
+                        .append("{\"source\":").append(quote(failure.getSource().toString()))
+                        .append(",\"reason\":").append(quote(failure.getReason())).append('}');
+            }
+            line.append("]}");
+            this.out.println(line);
+            return;
+        }
+
+        long files = 0;
+        for (ScannedFile extension : chosen) {
+            files += extension.getFileCount();
+            this.out.printf("%-12s %,10d files %,16d bytes%n", extension.getName(), extension.getFileCount(), extension.getTotalBytes());
+        }
+        if (scanMillis >= 0) {
+            this.out.printf("Scanned in %,d ms: %,d files in %,d extensions%n", scanMillis, files, chosen.size());
+        }
+        if (this.scanTruncated) {
+            this.out.printf("Scan stopped after %,d entries; further folders were not listed%n", this.scanOptions.getMaxEntries());
+        }
+        if (this.dryRun) {
+            this.out.println("Dry run: nothing was moved");
+            return;
+        }
+        for (MoveResult.Outcome failure : failures) {
+            this.out.println("FAILED " + failure.getSource() + ": " + failure.getReason());
+        }
+        this.out.println(result);
+    }
+
+    /**
+     * Prints every group of identical files, with the file a sort would keep first.
+     * @param groups - The groups of identical files.
+     */
+    private void printDuplicates(List<DuplicateFinder.Group> groups) {
+        long duplicates = 0;
+        long redundantBytes = 0;
+        for (DuplicateFinder.Group group : groups) {
+            duplicates += group.getFiles().size() - 1;
+            redundantBytes += group.getRedundantBytes();
+        }
+
+        if (this.json) {
+            StringBuilder line = new StringBuilder("{\"event\":\"duplicates\"");
+            line.append(",\"duplicates\":").append(duplicates);
+            line.append(",\"redundantBytes\":").append(redundantBytes);
+            line.append(",\"groups\":[");
+            for (int i = 0; i < groups.size(); i++) {
+                DuplicateFinder.Group group = groups.get(i);
+                line.append(i == 0 ? "" : ",").append("{\"size\":").append(group.getSize()).append(",\"files\":[");
+                for (int j = 0; j < group.getFiles().size(); j++) {
+                    line.append(j == 0 ? "" : ",").append(quote(group.getFiles().get(j).toString()));
+                }
+                line.append("]}");
+            }
+            line.append("]}");
+            this.out.println(line);
+            return;
+        }
+
+        for (DuplicateFinder.Group group : groups) {
+            this.out.printf("%,d bytes: %s%n", group.getSize(), group.getFiles().get(0));
+            for (int i = 1; i < group.getFiles().size(); i++) {
+                this.out.println("    duplicate " + group.getFiles().get(i));
+            }
+        }
+        this.out.printf("%,d duplicate files in %,d groups, %,d redundant bytes%n", duplicates, groups.size(), redundantBytes);
+    }
+
+    /**
+     * Prints the files and bytes a sort would move into each folder.
+     * @param plan - The move plan.
+     */
+    private void printPlan(MovePlan plan) {
+        if (this.json) {
+            StringBuilder line = new StringBuilder("{\"event\":\"plan\"");
+            line.append(",\"files\":").append(plan.getFileCount());
+            line.append(",\"bytes\":").append(plan.getTotalBytes());
+            line.append(",\"folders\":[");
+            for (int i = 0; i < plan.getDestinations().size(); i++) {
+                MovePlan.Destination destination = plan.getDestinations().get(i);
+                line.append(i == 0 ? "" : ",")
+                        .append("{\"folder\":").append(quote(destination.getFolder().toString()))
+                        .append(",\"files\":").append(destination.getFileCount())
+                        .append(",\"bytes\":").append(destination.getTotalBytes()).append('}');
+            }
+            line.append("]}");
+            this.out.println(line);
+            return;
+        }
+
+        for (MovePlan.Destination destination : plan.getDestinations()) {
+            this.out.printf("%,10d files %,16d bytes  %s%n", destination.getFileCount(), destination.getTotalBytes(), destination.getFolder());
+        }
+        this.out.println(plan);
+    }
+
+    private void printError(String message) {
+        if (this.json) {
+            this.out.println("{\"event\":\"error\",\"message\":" + quote(message) + "}");
+        } else {
+            this.out.println(message);
+        }
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     * @param value - The string to quote.
+     * @return - The JSON string literal.
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
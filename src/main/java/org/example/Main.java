@@ -1,13 +1,21 @@
 package org.example;
 
 import org.example.components.Gui;
+import org.example.components.Style;
 
 /**
  * This is the main entry point of the application.
- * It initializes the graphical user interface (GUI) component.
+ * Without arguments it initializes the graphical user interface (GUI) component;
+ * with arguments it runs headless through CommandLine, without loading AWT or Swing.
  */
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(CommandLine.run(args, System.out));
+        }
+
+        // Parse fonts in the background while the frame is built
+        Style.preload();
         var gui = new Gui();
     }
-}
\ No newline at end of file
+}
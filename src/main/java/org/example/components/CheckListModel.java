@@ -0,0 +1,131 @@
+package org.example.components;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * List model for a list of checkable scanned files.
+ * Selection is kept in a bitset relative to an "all selected" flag, so select all and deselect all
+ * only reset the bitset and fire a single change event, whatever the size of the list.
+ */
+class CheckListModel extends AbstractListModel<ScannedFile> {
+    private final ArrayList<ScannedFile> items = new ArrayList<>();
+    private BitSet flipped = new BitSet();
+    private boolean allSelected;
+
+    @Override
+    public int getSize() {
+        return this.items.size();
+    }
+
+    @Override
+    public ScannedFile getElementAt(int index) {
+        return this.items.get(index);
+    }
+
+    /**
+     * Checks whether the item at the given index is selected.
+     * @param index - The index of the item.
+     * @return - True if the item is selected.
+     */
+    boolean isSelected(int index) {
+        return this.flipped.get(index) != this.allSelected;
+    }
+
+    /**
+     * Selects or deselects the item at the given index.
+     * @param index - The index of the item.
+     * @param selected - Whether the item should be selected.
+     */
+    void setSelected(int index, boolean selected) {
+        this.flipped.set(index, selected != this.allSelected);
+        fireContentsChanged(this, index, index);
+    }
+
+    /**
+     * Toggles the selection of the item at the given index.
+     * @param index - The index of the item.
+     */
+    void toggle(int index) {
+        setSelected(index, !isSelected(index));
+    }
+
+    /**
+     * Selects every item.
+     */
+    void selectAll() {
+        setAllSelected(true);
+    }
+
+    /**
+     * Deselects every item.
+     */
+    void deselectAll() {
+        setAllSelected(false);
+    }
+
+    /**
+     * Appends items to the end of the list, unselected.
+     * @param newItems - The items to append.
+     */
+    void addAll(List<ScannedFile> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+
+        int firstIndex = this.items.size();
+        this.items.addAll(newItems);
+        int lastIndex = this.items.size() - 1;
+        if (this.allSelected) {
+            // New items start unselected
+            this.flipped.set(firstIndex, lastIndex + 1);
+        }
+        fireIntervalAdded(this, firstIndex, lastIndex);
+    }
+
+    /**
+     * Replaces every item in the list; all items start unselected.
+     * @param newItems - The new items.
+     */
+    void setItems(List<ScannedFile> newItems) {
+        clear();
+        addAll(newItems);
+    }
+
+    /**
+     * Removes every item from the list.
+     */
+    void clear() {
+        int size = this.items.size();
+        this.items.clear();
+        this.flipped = new BitSet();
+        this.allSelected = false;
+        if (size > 0) {
+            fireIntervalRemoved(this, 0, size - 1);
+        }
+    }
+
+    /**
+     * Returns the selected items, in list order.
+     * @return - The selected items.
+     */
+    List<ScannedFile> getSelectedItems() {
+        ArrayList<ScannedFile> selected = new ArrayList<>();
+        for (int i = 0; i < this.items.size(); i++) {
+            if (isSelected(i)) {
+                selected.add(this.items.get(i));
+            }
+        }
+        return selected;
+    }
+
+    private void setAllSelected(boolean selected) {
+        this.flipped = new BitSet();
+        this.allSelected = selected;
+        if (!this.items.isEmpty()) {
+            fireContentsChanged(this, 0, this.items.size() - 1);
+        }
+    }
+}
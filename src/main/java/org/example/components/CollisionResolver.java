@@ -0,0 +1,189 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Settles destination name clashes in a move plan before anything is moved, e.g. when two sorted folders both hold a
+ * report.pdf, or Output already has one from an earlier sort.
+ * Each destination folder is listed once, and the names found there and the names the plan claims are kept in memory,
+ * so no file is probed for a free name. Names are settled in the plan's order, which makes them deterministic.
+ * The moves themselves never replace a file unless the policy chose to, so a file that appears at a destination while
+ * the moves run makes that move fail rather than be overwritten.
+ */
+public class CollisionResolver {
+    // Windows and macOS file systems treat names that differ only in case as the same name
+    private static final boolean CASE_INSENSITIVE_NAMES = isCaseInsensitivePlatform();
+
+    private final Policy policy;
+
+    /**
+     * What happens to a file whose name is already taken at its destination.
+     */
+    public enum Policy {
+        // Leave the file where it is
+        SKIP,
+        // Replace the file already there if this one was modified later, otherwise leave this one where it is.
+        // The replaced file is gone, so undo leaves the newer file in place
+        OVERWRITE_IF_NEWER,
+        // Give the file the first free name of the form "name (2).ext"
+        RENAME
+    }
+
+    /**
+     * The file a destination name is taken by.
+     */
+    private static class Claim {
+        // The index of the planned move claiming the name, or -1 for a file already in the folder
+        private final int moveIndex;
+        private final Path file;
+        private final boolean replacesExisting;
+
+        private Claim(int moveIndex, Path file, boolean replacesExisting) {
+            this.moveIndex = moveIndex;
+            this.file = file;
+            this.replacesExisting = replacesExisting;
+        }
+    }
+
+    /**
+     * Constructor for CollisionResolver class.
+     * @param policy - What happens to files whose name is taken.
+     */
+    public CollisionResolver(Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Settles the name clashes of a plan.
+     * @param plan - The plan, as worked out from the sort rules.
+     * @return - A plan in which every move has a destination name of its own; files left in place by the policy are
+     *           listed as skipped.
+     */
+    public MovePlan resolve(MovePlan plan) {
+        ArrayList<MoveEngine.Move> resolved = new ArrayList<>(plan.getFileCount());
+        ArrayList<MoveResult.Outcome> skipped = new ArrayList<>(plan.getSkipped());
+
+        // Plans are grouped by destination folder, so each folder's names are needed only while its group is settled
+        for (MovePlan.Destination destination : plan.getDestinations()) {
+            HashMap<String, Claim> claims = listNames(destination.getFolder());
+            HashMap<String, Integer> nextSuffixes = new HashMap<>();
+
+            for (MoveEngine.Move move : destination.getMoves()) {
+                String name = move.getDestination().getFileName().toString();
+                Claim claim = claims.get(key(name));
+                if (claim == null) {
+                    claims.put(key(name), new Claim(resolved.size(), move.getSource(), false));
+                    resolved.add(move);
+                    continue;
+                }
+
+                switch (this.policy) {
+                    case SKIP -> skipped.add(skip(move, claim));
+                    case RENAME -> {
+                        String freeName = freeName(name, claims, nextSuffixes);
+                        claims.put(key(freeName), new Claim(resolved.size(), move.getSource(), false));
+                        resolved.add(new MoveEngine.Move(move.getSource(), move.getDestination().resolveSibling(freeName),
+                                move.getSize(), move.getLinkTarget(), move.isReplaceExisting()));
+                    }
+                    case OVERWRITE_IF_NEWER -> {
+                        Path taken = claim.moveIndex < 0 ? move.getDestination() : claim.file;
+                        if (modifiedTime(move.getSource(), Long.MIN_VALUE) <= modifiedTime(taken, Long.MAX_VALUE)) {
+                            skipped.add(skip(move, claim));
+                            continue;
+                        }
+
+                        // A planned move that loses its name is left in place; a file already there is replaced
+                        boolean replacesExisting = claim.moveIndex < 0 || claim.replacesExisting;
+                        if (claim.moveIndex >= 0) {
+                            MoveEngine.Move older = resolved.set(claim.moveIndex, null);
+                            skipped.add(new MoveResult.Outcome(older.getSource(), older.getDestination(), MoveResult.Status.SKIPPED,
+                                    "Newer file with the same name: " + move.getSource(), 0));
+                        }
+                        claims.put(key(name), new Claim(resolved.size(), move.getSource(), replacesExisting));
+                        resolved.add(new MoveEngine.Move(move.getSource(), move.getDestination(), move.getSize(),
+                                move.getLinkTarget(), replacesExisting));
+                    }
+                }
+            }
+        }
+
+        resolved.removeIf(move -> move == null);
+        return new MovePlan(resolved, skipped);
+    }
+
+    /**
+     * Lists the names of the entries already in a destination folder.
+     * @param folder - The destination folder.
+     * @return - A claim per name, by comparison key; empty if the folder does not exist yet.
+     */
+    private static HashMap<String, Claim> listNames(Path folder) {
+        HashMap<String, Claim> claims = new HashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+            for (Path entry : entries) {
+                claims.put(key(entry.getFileName().toString()), new Claim(-1, entry, false));
+            }
+        } catch (NoSuchFileException exception) {
+            // Not created yet, so nothing is taken
+        } catch (IOException exception) {
+            // The moves still never replace an unlisted file, they fail on it instead
+            System.out.println("Error listing directory: " + exception);
+        }
+        return claims;
+    }
+
+    /**
+     * Finds the first name of the form "name (n).ext" that is not taken.
+     * @param name - The taken file name.
+     * @param claims - The taken names of the folder.
+     * @param nextSuffixes - The next number to try per taken name, so many clashes on one name stay cheap.
+     * @return - A free file name.
+     */
+    private static String freeName(String name, HashMap<String, Claim> claims, HashMap<String, Integer> nextSuffixes) {
+        String extension = DirectoryWalker.getFileExtension(name);
+        String baseName = name.substring(0, name.length() - extension.length());
+        int suffix = nextSuffixes.getOrDefault(key(name), 2);
+        String freeName = baseName + " (" + suffix + ")" + extension;
+        while (claims.containsKey(key(freeName))) {
+            suffix++;
+            freeName = baseName + " (" + suffix + ")" + extension;
+        }
+        nextSuffixes.put(key(name), suffix + 1);
+        return freeName;
+    }
+
+    private static MoveResult.Outcome skip(MoveEngine.Move move, Claim claim) {
+        String reason = claim.moveIndex < 0 ? "Destination already exists" : "Same name as " + claim.file;
+        return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.SKIPPED, reason, 0);
+    }
+
+    /**
+     * Reads a file's modification time; only done for files whose name clashes.
+     * @param file - The file.
+     * @param unknown - The time to assume if it cannot be read, chosen so that nothing is replaced in that case.
+     * @return - The modification time in milliseconds.
+     */
+    private static long modifiedTime(Path file, long unknown) {
+        try {
+            return Files.getLastModifiedTime(file, LinkOption.NOFOLLOW_LINKS).toMillis();
+        } catch (IOException exception) {
+            return unknown;
+        }
+    }
+
+    private static String key(String name) {
+        return CASE_INSENSITIVE_NAMES ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    private static boolean isCaseInsensitivePlatform() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        return os.startsWith("windows") || os.startsWith("mac");
+    }
+}
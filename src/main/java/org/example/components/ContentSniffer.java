@@ -0,0 +1,227 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Detects the type of a file from the magic number in its first few bytes, for files whose extension is
+ * missing or not trusted (e.g. ".dat" files that are really PDFs).
+ * Only a short header is read per file, and results are cached by path, size and modification time,
+ * so a repeat scan does not read the headers of unchanged files again.
+ */
+public class ContentSniffer {
+    /**
+     * Extensions that say little about a file's content, so files with them are sniffed by default.
+     */
+    public static final Set<String> DEFAULT_UNTRUSTED_EXTENSIONS = Set.of(".dat", ".bin", ".tmp");
+
+    // Long enough for every signature below, including the brand of ISO media files and the form type of RIFF files
+    private static final int HEADER_LENGTH = 16;
+    private static final ThreadLocal<ByteBuffer> HEADER_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(HEADER_LENGTH));
+
+    // Checked in order, so more specific signatures come before the ones they share a prefix with
+    private static final List<Signature> SIGNATURES = List.of(
+            new Signature(0, bytes("%PDF-"), ".pdf"),
+            new Signature(0, bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A), ".png"),
+            new Signature(0, bytes(0xFF, 0xD8, 0xFF), ".jpg"),
+            new Signature(0, bytes("GIF87a"), ".gif"),
+            new Signature(0, bytes("GIF89a"), ".gif"),
+            new Signature(0, bytes("II*\0"), ".tif"),
+            new Signature(0, bytes("MM\0*"), ".tif"),
+            new Signature(4, bytes("ftypqt  "), ".mov"),
+            new Signature(4, bytes("ftypheic"), ".heic"),
+            new Signature(4, bytes("ftypheix"), ".heic"),
+            new Signature(4, bytes("ftypmif1"), ".heic"),
+            new Signature(4, bytes("ftypM4A "), ".m4a"),
+            new Signature(4, bytes("ftyp"), ".mp4"),
+            new Signature(8, bytes("WAVE"), ".wav"),
+            new Signature(8, bytes("AVI "), ".avi"),
+            new Signature(8, bytes("WEBP"), ".webp"),
+            new Signature(0, bytes("ID3"), ".mp3"),
+            new Signature(0, bytes("fLaC"), ".flac"),
+            new Signature(0, bytes("OggS"), ".ogg"),
+            new Signature(0, bytes(0x1A, 0x45, 0xDF, 0xA3), ".mkv"),
+            new Signature(0, bytes('P', 'K', 0x03, 0x04), ".zip"),
+            new Signature(0, bytes('P', 'K', 0x05, 0x06), ".zip"),
+            new Signature(0, bytes('R', 'a', 'r', '!', 0x1A, 0x07), ".rar"),
+            new Signature(0, bytes('7', 'z', 0xBC, 0xAF, 0x27, 0x1C), ".7z"),
+            new Signature(0, bytes(0x1F, 0x8B), ".gz"),
+            new Signature(0, bytes(0xFD, '7', 'z', 'X', 'Z', 0x00), ".xz"),
+            new Signature(0, bytes(0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1), ".doc"),
+            new Signature(0, bytes("SQLite format 3\0"), ".sqlite"),
+            new Signature(0, bytes(0x7F, 'E', 'L', 'F'), ".elf"),
+            new Signature(0, bytes("MZ"), ".exe"));
+
+    private final Set<String> untrustedExtensions;
+    private final ConcurrentHashMap<String, CachedType> cache = new ConcurrentHashMap<>();
+
+    /**
+     * A magic number at a fixed offset and the file extension it stands for.
+     */
+    private static class Signature {
+        private final int offset;
+        private final byte[] magic;
+        private final String extension;
+
+        private Signature(int offset, byte[] magic, String extension) {
+            this.offset = offset;
+            this.magic = magic;
+            this.extension = extension;
+        }
+
+        private boolean matches(ByteBuffer header) {
+            if (header.limit() < this.offset + this.magic.length) {
+                return false;
+            }
+            for (int i = 0; i < this.magic.length; i++) {
+                if (header.get(this.offset + i) != this.magic[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A detected type and the size and modification time of the file when it was sniffed.
+     */
+    private static class CachedType {
+        private final long size;
+        private final long modifiedTime;
+        private final String extension;
+
+        private CachedType(long size, long modifiedTime, String extension) {
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Constructor for ContentSniffer class, sniffing files without an extension or with one of DEFAULT_UNTRUSTED_EXTENSIONS.
+     */
+    public ContentSniffer() {
+        this(DEFAULT_UNTRUSTED_EXTENSIONS);
+    }
+
+    /**
+     * Constructor for ContentSniffer class.
+     * @param untrustedExtensions - Extensions whose files are sniffed, besides files without an extension.
+     */
+    public ContentSniffer(Set<String> untrustedExtensions) {
+        this.untrustedExtensions = ConcurrentHashMap.newKeySet();
+        for (String extension : untrustedExtensions) {
+            this.untrustedExtensions.add(ExtensionIndex.normalize(extension));
+        }
+    }
+
+    /**
+     * Checks whether a file's extension is left to sniffing rather than trusted.
+     * @param extension - The file extension from the file name, or an empty string if there is none.
+     * @return - True if files with this extension are sniffed.
+     */
+    public boolean shouldSniff(String extension) {
+        return extension.isEmpty() || this.untrustedExtensions.contains(ExtensionIndex.normalize(extension));
+    }
+
+    /**
+     * Detects the type of a file from its header, or takes it from the cache if the file is unchanged since it was last sniffed.
+     * @param file - The file to sniff.
+     * @param size - The size of the file, as found by the scan.
+     * @param modifiedTime - The modification time of the file, as found by the scan.
+     * @return - The file extension for the detected type, or an empty string if the header matched no known type.
+     */
+    public String detect(Path file, long size, long modifiedTime) {
+        String key = file.toString();
+        CachedType cached = this.cache.get(key);
+        if (cached != null && cached.size == size && cached.modifiedTime == modifiedTime) {
+            return cached.extension;
+        }
+
+        String extension = sniff(file);
+        this.cache.put(key, new CachedType(size, modifiedTime, extension));
+        return extension;
+    }
+
+    /**
+     * Detects the types of many files at once, reading their headers in parallel.
+     * @param files - The files to sniff, each by full path and with its size and modification time.
+     * @param parallelism - The number of headers read at the same time.
+     * @param listener - Can cancel the sniffing.
+     * @return - The detected file extension per file, in the order given; an empty string where nothing matched.
+     * @throws CancellationException - If the listener cancelled the sniffing.
+     */
+    public String[] detectAll(List<ScannedFile> files, int parallelism, ScanListener listener) {
+        String[] extensions = new String[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.submit(() -> IntStream.range(0, extensions.length).parallel().forEach(i -> {
+                if (!listener.isCancelled()) {
+                    ScannedFile file = files.get(i);
+                    extensions[i] = detect(Path.of(file.getName()), file.getTotalBytes(), file.getLastModified());
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        if (listener.isCancelled()) {
+            throw new CancellationException("Scan cancelled");
+        }
+        return extensions;
+    }
+
+    /**
+     * Returns the number of files whose detected type is cached.
+     * @return - The number of cached files.
+     */
+    public int cacheSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * Reads the header of a file and matches it against the signature table.
+     * @param file - The file to sniff.
+     * @return - The file extension for the detected type, or an empty string if nothing matched or the file cannot be read.
+     */
+    private static String sniff(Path file) {
+        ByteBuffer header = HEADER_BUFFER.get().clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Keep reading until the header is full or the file ends
+            }
+        } catch (IOException exception) {
+            return "";
+        }
+        header.flip();
+
+        for (Signature signature : SIGNATURES) {
+            if (signature.matches(header)) {
+                return signature.extension;
+            }
+        }
+        return "";
+    }
+
+    private static byte[] bytes(String magic) {
+        return magic.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(int... magic) {
+        byte[] bytes = new byte[magic.length];
+        for (int i = 0; i < magic.length; i++) {
+            bytes[i] = (byte) magic[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,290 @@
+package org.example.components;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lazily walks directory trees depth-first in pre-order, listing each directory only when the walk reaches it.
+ * Only the listings of the directories on the current path are held, so memory grows with the depth of the
+ * tree and the size of its directories, never with the size of the whole tree.
+ * When links are followed, each folder is walked once, like DirectoryWalker does: a link to a folder within the roots
+ * is not walked into, since that folder is walked where it is, and only the keys of folders reached through links to
+ * places outside the roots are kept.
+ * Files are returned with their full path, size and modification time; folders with their full path and modification time.
+ * Each entry's attributes are read once, while its directory is listed. Folders the scan options prune are never listed.
+ * The walk counts as a scan in flight in Metrics until it is done, cancelled or finish() is called, and records the same
+ * directory metrics and DirectoryListedEvents as DirectoryWalker.
+ */
+class DirectoryIterator implements Iterator<ScannedFile> {
+    private final ArrayDeque<ScannedFile> rootFiles = new ArrayDeque<>();
+    // Listed one at a time, so the stack only ever holds a root and its subfolders
+    private final ArrayDeque<File> rootFolders = new ArrayDeque<>();
+    private final ArrayList<Path> rootRealPaths = new ArrayList<>();
+    private final ArrayDeque<Listing> stack = new ArrayDeque<>();
+    private final boolean recursive;
+    private final boolean includeFiles;
+    private final boolean includeFolders;
+    private final ScanListener listener;
+    private final ScanOptions options;
+    private final Path base;
+    // The folders walked outside the roots through links, by folder key, so each is walked once however many links lead to it
+    private final Set<Object> linkedFolders = new HashSet<>();
+    private final Metrics metrics = Metrics.get();
+    private final long startNanos = System.nanoTime();
+    private long entryBudget;
+    private boolean finished;
+    private ScannedFile next;
+
+    /**
+     * The entries of one directory and how far the walk got through them.
+     */
+    private static class Listing {
+        private final String directory;
+        private final String relativePath;
+        private final int depth;
+        private final ScanIndex.DirectoryRecord entries;
+        // The directory's folder key when links are followed, so a link back to it from below is recognized; else null
+        private final Object folderKey;
+        // Whether the directory was reached through a link to a place outside the roots
+        private final boolean linked;
+        private int position;
+
+        private Listing(String directory, String relativePath, int depth, ScanIndex.DirectoryRecord entries, Object folderKey,
+                        boolean linked) {
+            this.directory = directory;
+            this.relativePath = relativePath;
+            this.depth = depth;
+            this.entries = entries;
+            this.folderKey = folderKey;
+            this.linked = linked;
+        }
+    }
+
+    /**
+     * Constructor for DirectoryIterator class.
+     * @param roots - The entries to start from. Folders among them are listed; they are not returned themselves.
+     * @param recursive - True to walk into subfolders, false to only return the entries directly inside the roots.
+     * @param includeFiles - Whether files are returned.
+     * @param includeFolders - Whether folders are returned.
+     * @param listener - Receives the number of entries of every listed directory, and can cancel the walk.
+     */
+    DirectoryIterator(List<File> roots, boolean recursive, boolean includeFiles, boolean includeFolders, ScanListener listener) {
+        this(roots, recursive, includeFiles, includeFolders, listener, new ScanOptions(), null);
+    }
+
+    /**
+     * Constructor for DirectoryIterator class.
+     * @param roots - The entries to start from. Folders among them are listed; they are not returned themselves.
+     * @param recursive - True to walk into subfolders, false to only return the entries directly inside the roots.
+     * @param includeFiles - Whether files are returned.
+     * @param includeFolders - Whether folders are returned.
+     * @param listener - Receives the number of entries of every listed directory and the end of the entry budget, and can cancel the walk.
+     * @param options - Which folders and files the walk prunes, and how it treats symbolic links.
+     * @param base - The folder that scan option patterns and depths are relative to, either a root or the parent of the
+     *               roots; or null to take them relative to each root.
+     */
+    DirectoryIterator(List<File> roots, boolean recursive, boolean includeFiles, boolean includeFolders, ScanListener listener,
+                      ScanOptions options, Path base) {
+        this.recursive = recursive;
+        this.includeFiles = includeFiles;
+        this.includeFolders = includeFolders;
+        this.listener = listener;
+        this.options = options;
+        this.base = base;
+        this.entryBudget = options.getMaxEntries();
+        this.metrics.scansInFlight.increment();
+
+        // Files among the roots come first, then the contents of each folder in turn
+        for (File root : roots) {
+            BasicFileAttributes attributes = DirectoryWalker.readAttributes(root.toPath());
+            if (attributes == null) {
+                continue;
+            }
+            boolean isBase = base == null || base.toAbsolutePath().equals(root.toPath().toAbsolutePath());
+            if (attributes.isRegularFile()) {
+                if (includeFiles && (isBase || options.acceptsFile("", root.getName(), 1))) {
+                    this.metrics.filesSeen.increment();
+                    this.rootFiles.add(new ScannedFile(root.getPath(), ScannedFile.Type.FILE, 1,
+                            attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            } else if (attributes.isDirectory()) {
+                if (isBase || options.acceptsFolder("", root.getName(), 1)) {
+                    this.rootFolders.add(root);
+                    this.rootRealPaths.add(realPath(root.toPath()));
+                } else {
+                    this.metrics.foldersPruned.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            this.next = advance();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public ScannedFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ScannedFile entry = this.next;
+        this.next = null;
+        return entry;
+    }
+
+    /**
+     * Finds the next entry to return.
+     * @return - The next entry, or null once the walk is done.
+     * @throws CancellationException - If the listener cancelled the walk.
+     */
+    private ScannedFile advance() {
+        if (!this.rootFiles.isEmpty()) {
+            return this.rootFiles.poll();
+        }
+        while (!this.stack.isEmpty() || !this.rootFolders.isEmpty()) {
+            if (this.listener.isCancelled()) {
+                finish();
+                throw new CancellationException("Scan cancelled");
+            }
+            if (this.stack.isEmpty()) {
+                File root = this.rootFolders.poll();
+                boolean isBase = this.base == null || this.base.toAbsolutePath().equals(root.toPath().toAbsolutePath());
+                push(root.getPath(), isBase ? "" : root.getName(), isBase ? 0 : 1, null, false);
+                continue;
+            }
+
+            Listing listing = this.stack.peek();
+            ScanIndex.DirectoryRecord entries = listing.entries;
+            if (listing.position == entries.names.length) {
+                this.stack.pop();
+                continue;
+            }
+
+            int i = listing.position++;
+            String name = entries.names[i];
+            entries.names[i] = null; // Let returned entries be collected
+            if (entries.isLink(i) && !this.options.followsLinks()) {
+                continue;
+            }
+            String path = listing.directory + File.separator + name;
+            if (entries.isFile(i)) {
+                if (this.options.acceptsFile(listing.relativePath, name, listing.depth + 1)) {
+                    this.metrics.filesSeen.increment();
+                    if (this.includeFiles) {
+                        return new ScannedFile(path, ScannedFile.Type.FILE, 1, entries.sizes[i], entries.modifiedTimes[i]);
+                    }
+                }
+            } else if (this.options.acceptsFolder(listing.relativePath, name, listing.depth + 1)) {
+                // A link to a folder within the roots is left out; the folder is walked where it is
+                boolean linked = listing.linked || entries.isLink(i);
+                if (this.recursive && !(entries.isLink(i) && isWithinRoots(Path.of(path)))) {
+                    push(path, ScanOptions.childPath(listing.relativePath, name), listing.depth + 1, entries.fileKeys[i], linked);
+                }
+                if (this.includeFolders) {
+                    return new ScannedFile(path, ScannedFile.Type.FOLDER, 0, 0, entries.modifiedTimes[i]);
+                }
+            } else {
+                this.metrics.foldersPruned.increment();
+            }
+        }
+        finish();
+        return null;
+    }
+
+    /**
+     * Ends the walk's in-flight and latency accounting, e.g. when its stream is closed before the walk is done.
+     * Later calls do nothing.
+     */
+    void finish() {
+        if (!this.finished) {
+            this.finished = true;
+            this.metrics.scansInFlight.decrement();
+            this.metrics.scanLatency.record(System.nanoTime() - this.startNanos);
+        }
+    }
+
+    /**
+     * Lists a folder and puts it on top of the stack, unless it was already walked through another link, is one of the
+     * folders already on the stack, or the entry budget is spent.
+     * @param folder - The folder's full path.
+     * @param relativePath - The folder's path relative to the base, as matched by the scan options.
+     * @param depth - The folder's depth below the base.
+     * @param folderKey - The folder's key from its parent's listing, or null if not known.
+     * @param linked - Whether the folder was reached through a link to a place outside the roots.
+     */
+    private void push(String folder, String relativePath, int depth, Object folderKey, boolean linked) {
+        this.metrics.directoriesVisited.increment();
+        if (this.entryBudget <= 0) {
+            if (this.entryBudget == 0) {
+                this.entryBudget = -1; // Reported once
+                this.listener.onScanTruncated(this.options.getMaxEntries());
+            }
+            return;
+        }
+        Object key = null;
+        if (this.options.followsLinks()) {
+            key = folderKey != null ? folderKey : DirectoryWalker.folderKey(Path.of(folder), null);
+            if (key != null) {
+                if (linked && !this.linkedFolders.add(key)) {
+                    return; // Already walked through another link
+                }
+                for (Listing ancestor : this.stack) {
+                    if (key.equals(ancestor.folderKey)) {
+                        return; // A link back to a folder the walk is inside of
+                    }
+                }
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        DirectoryListedEvent event = new DirectoryListedEvent();
+        event.begin();
+        ScanIndex.DirectoryRecord entries = DirectoryWalker.listDirectory(Path.of(folder), 0, 0, event);
+        if (entries == null) {
+            return; // Skip folders that cannot be listed
+        }
+        this.metrics.directoriesListed.increment();
+        this.metrics.directoryListingLatency.record(System.nanoTime() - startNanos);
+        DirectoryWalker.commit(event, folder, entries);
+        this.entryBudget = Math.max(0, this.entryBudget - entries.names.length);
+        this.listener.onEntriesScanned(entries.names.length);
+        this.stack.push(new Listing(folder, relativePath, depth, entries, key, linked));
+    }
+
+    /**
+     * Checks whether a link leads to a folder within one of the roots.
+     * @param link - The link.
+     * @return - True if the folder it points to is walked as part of a root.
+     */
+    private boolean isWithinRoots(Path link) {
+        Path target = realPath(link);
+        for (Path root : this.rootRealPaths) {
+            if (target.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException exception) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.components;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a directory listed from disk. The event duration covers the listing and the
+ * per-entry attribute reads; statDuration is the share spent on those reads.
+ */
+@Name("org.example.filesorter.DirectoryListed")
+@Label("Directory Listed")
+@Category({"File Sorter", "Scan"})
+@StackTrace(false)
+class DirectoryListedEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Files")
+    int files;
+
+    @Label("Folders")
+    int folders;
+
+    @Label("Stat Duration")
+    @Description("Time spent reading the attributes of each entry")
+    @Timespan(Timespan.NANOSECONDS)
+    long statDuration;
+}
@@ -0,0 +1,547 @@
+package org.example.components;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Walks one or more directory trees using a work-stealing fork/join pool.
+ * Every directory is listed exactly once; files, folders and file extensions are gathered in the same pass.
+ * Each entry is looked up with a single attribute read, which gives its type, size and modification time at once.
+ * Folders the scan options prune are never listed.
+ */
+class DirectoryWalker {
+    private final int parallelism;
+    private final ScanListener listener;
+    private final ScanIndex scanIndex;
+    private final ScanOptions options;
+    private final Set<String> seenExtensions = ConcurrentHashMap.newKeySet();
+    // Every folder walked so far, by folder key, so a folder reached again through a link is not walked twice
+    private final Set<Object> walkedFolders = ConcurrentHashMap.newKeySet();
+    private final AtomicLong entryBudget;
+    private volatile boolean budgetSpent;
+    private final Metrics metrics = Metrics.get();
+
+    /**
+     * Constructor for DirectoryWalker class.
+     * @param parallelism - The number of worker threads used for the walk.
+     */
+    DirectoryWalker(int parallelism) {
+        this(parallelism, ScanListener.NONE);
+    }
+
+    /**
+     * Constructor for DirectoryWalker class.
+     * @param parallelism - The number of worker threads used for the walk.
+     * @param listener - Receives found folders and new file extensions while the walk runs.
+     */
+    DirectoryWalker(int parallelism, ScanListener listener) {
+        this(parallelism, listener, null);
+    }
+
+    /**
+     * Constructor for DirectoryWalker class.
+     * @param parallelism - The number of worker threads used for the walk.
+     * @param listener - Receives found folders and new file extensions while the walk runs.
+     * @param scanIndex - Cached directory listings to reuse for unchanged directories, or null to list every directory.
+     */
+    DirectoryWalker(int parallelism, ScanListener listener, ScanIndex scanIndex) {
+        this(parallelism, listener, scanIndex, new ScanOptions());
+    }
+
+    /**
+     * Constructor for DirectoryWalker class.
+     * @param parallelism - The number of worker threads used for the walk.
+     * @param listener - Receives found folders and new file extensions while the walk runs.
+     * @param scanIndex - Cached directory listings to reuse for unchanged directories, or null to list every directory.
+     * @param options - Which folders and files the walk prunes, and how it treats symbolic links.
+     */
+    DirectoryWalker(int parallelism, ScanListener listener, ScanIndex scanIndex, ScanOptions options) {
+        this.parallelism = Math.max(1, parallelism);
+        this.listener = listener;
+        this.scanIndex = scanIndex;
+        this.options = options;
+        this.entryBudget = new AtomicLong(options.getMaxEntries());
+    }
+
+    /**
+     * Walks the given root folders and everything below them. Scan option patterns and depths are taken relative to each root.
+     * @param roots - The folders to start walking from.
+     * @return - The folders, files and unique file extensions found, in breadth-first order.
+     * @throws CancellationException - If the listener cancelled the walk.
+     */
+    WalkResult walk(List<File> roots) {
+        return walk(null, roots);
+    }
+
+    /**
+     * Walks the given root folders and everything below them.
+     * @param base - The folder that scan option patterns and depths are relative to, usually the parent of the roots;
+     *               or null to take them relative to each root.
+     * @param roots - The folders to start walking from.
+     * @return - The folders, files and unique file extensions found, in breadth-first order. Roots pruned by the scan
+     *         options are left out.
+     * @throws CancellationException - If the listener cancelled the walk.
+     */
+    WalkResult walk(Path base, List<File> roots) {
+        List<DirectoryNode> rootNodes = new ArrayList<>();
+        for (File root : roots) {
+            String relativePath = "";
+            int depth = 0;
+            if (base != null) {
+                Path relative = base.toAbsolutePath().relativize(root.toPath().toAbsolutePath());
+                relativePath = relative.toString().replace(File.separatorChar, '/');
+                depth = relativePath.isEmpty() ? 0 : relative.getNameCount();
+                int slash = relativePath.lastIndexOf('/');
+                String parentPath = slash < 0 ? "" : relativePath.substring(0, slash);
+                if (depth > 0 && !this.options.acceptsFolder(parentPath, root.getName(), depth)) {
+                    this.metrics.foldersPruned.increment();
+                    continue;
+                }
+            }
+            rootNodes.add(new DirectoryNode(root.getAbsolutePath(), -1, relativePath, depth, null));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.invoke(new WalkTask(rootNodes));
+        } finally {
+            pool.shutdown();
+        }
+
+        if (this.listener.isCancelled()) {
+            throw new CancellationException("Scan cancelled");
+        }
+
+        WalkResult result = flatten(rootNodes);
+        result.budgetSpent = this.budgetSpent;
+        return result;
+    }
+
+    /**
+     * Flattens the walked tree in breadth-first order, matching the order of the original sequential scan.
+     * @param rootNodes - The walked root nodes.
+     * @return - The flattened walk result.
+     */
+    private WalkResult flatten(List<DirectoryNode> rootNodes) {
+        WalkResult result = new WalkResult();
+        ArrayDeque<DirectoryNode> queue = new ArrayDeque<>(rootNodes);
+
+        while (!queue.isEmpty()) {
+            DirectoryNode node = queue.poll();
+            int folder = result.folders.size();
+            result.folders.add(node.path);
+
+            for (int i = 0; i < node.fileNames.size(); i++) {
+                String extension = node.fileExtensions.get(i);
+                result.addFile(folder, node.fileNames.get(i), extension, node.fileSizes.get(i), node.fileModifiedTimes.get(i));
+                if (!extension.isEmpty()) {
+                    result.uniqueExtensions.add(extension);
+                }
+            }
+
+            queue.addAll(node.children);
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves the file extension from a file name.
+     * @param fileName - The name of the file.
+     * @return - The file extension, or an empty string if there is none.
+     */
+    static String getFileExtension(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
+            return fileName.substring(dotIndex);
+        } else {
+            return ""; // No extension found; return empty
+        }
+    }
+
+    /**
+     * Lists a directory, reading the attributes of each entry once.
+     * Where the platform supports it, entries are read relative to the open directory, which saves resolving the full path per entry.
+     * Symbolic links are resolved to the files and folders they point to and marked with ScanIndex.TYPE_LINK, so callers can
+     * follow or skip them. Entries that are neither files nor folders, broken links, and entries that are gone by the time
+     * they are read are left out. The file keys of the folders are kept in the record for loop detection.
+     * @param directory - The directory to list.
+     * @param modifiedTime - The modification time of the directory itself, kept in the returned record.
+     * @param listedTime - The time the listing started.
+     * @param event - An event to add the time spent reading attributes to, or null.
+     * @return - The files and folders directly inside the directory, or null if it cannot be listed.
+     */
+    static ScanIndex.DirectoryRecord listDirectory(Path directory, long modifiedTime, long listedTime, DirectoryListedEvent event) {
+        boolean timed = event != null && event.isEnabled();
+        ArrayList<String> names = new ArrayList<>();
+        byte[] types = new byte[16];
+        long[] sizes = new long[16];
+        long[] modifiedTimes = new long[16];
+        Object[] fileKeys = new Object[16];
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                long statStart = timed ? System.nanoTime() : 0;
+                BasicFileAttributes attributes = readAttributes(entries, entry, LinkOption.NOFOLLOW_LINKS);
+                boolean link = attributes != null && attributes.isSymbolicLink();
+                if (link) {
+                    // Only links take a second read, for what they point to
+                    attributes = readAttributes(entries, entry);
+                }
+                if (timed) {
+                    event.statDuration += System.nanoTime() - statStart;
+                }
+                if (attributes == null || !(attributes.isRegularFile() || attributes.isDirectory())) {
+                    continue;
+                }
+
+                int count = names.size();
+                if (count == types.length) {
+                    types = Arrays.copyOf(types, count * 2);
+                    sizes = Arrays.copyOf(sizes, count * 2);
+                    modifiedTimes = Arrays.copyOf(modifiedTimes, count * 2);
+                    fileKeys = Arrays.copyOf(fileKeys, count * 2);
+                }
+                names.add(entry.getFileName().toString());
+                types[count] = (byte) ((attributes.isRegularFile() ? ScanIndex.TYPE_FILE : ScanIndex.TYPE_FOLDER) | (link ? ScanIndex.TYPE_LINK : 0));
+                sizes[count] = attributes.isRegularFile() ? attributes.size() : 0;
+                modifiedTimes[count] = attributes.lastModifiedTime().toMillis();
+                fileKeys[count] = attributes.isDirectory() ? attributes.fileKey() : null;
+            }
+        } catch (IOException | DirectoryIteratorException exception) {
+            return null;
+        }
+
+        int count = names.size();
+        ScanIndex.DirectoryRecord record = new ScanIndex.DirectoryRecord(modifiedTime, listedTime, names.toArray(new String[0]),
+                Arrays.copyOf(types, count), Arrays.copyOf(sizes, count), Arrays.copyOf(modifiedTimes, count));
+        record.fileKeys = Arrays.copyOf(fileKeys, count);
+        return record;
+    }
+
+    /**
+     * Ends a directory listing's Flight Recorder event and commits it, if recording.
+     * @param event - The event, begun before the directory was listed.
+     * @param directory - The directory's full path.
+     * @param record - The directory's entries.
+     */
+    static void commit(DirectoryListedEvent event, String directory, ScanIndex.DirectoryRecord record) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = directory;
+            event.entries = record.names.length;
+            for (int i = 0; i < record.types.length; i++) {
+                if (record.isFile(i)) {
+                    event.files++;
+                } else {
+                    event.folders++;
+                }
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads the attributes of a single file or folder.
+     * @param path - The file or folder.
+     * @return - Its attributes, or null if they cannot be read.
+     */
+    static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the modification time of a file or folder.
+     * @param path - The file or folder.
+     * @return - The modification time in milliseconds since the epoch, or 0 if it cannot be read.
+     */
+    static long modifiedTime(Path path) {
+        BasicFileAttributes attributes = readAttributes(path);
+        return attributes == null ? 0 : attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Returns an identity for a folder that is the same however the folder is reached, e.g. through a symbolic link.
+     * @param folder - The folder.
+     * @param attributes - The folder's attributes, or null if they are not read yet.
+     * @return - The folder's file key, or its real path on file systems without file keys; null if neither can be read.
+     */
+    static Object folderKey(Path folder, BasicFileAttributes attributes) {
+        if (attributes == null) {
+            attributes = readAttributes(folder);
+        }
+        if (attributes != null && attributes.fileKey() != null) {
+            return attributes.fileKey();
+        }
+        try {
+            return folder.toRealPath().toString();
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(DirectoryStream<Path> directory, Path entry, LinkOption... options) {
+        try {
+            if (!(directory instanceof SecureDirectoryStream<Path> secureDirectory)) {
+                return Files.readAttributes(entry, BasicFileAttributes.class, options);
+            }
+            return secureDirectory.getFileAttributeView(entry.getFileName(), BasicFileAttributeView.class, options).readAttributes();
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * The outcome of a walk.
+     */
+    static class WalkResult {
+        final List<String> folders = new ArrayList<>();
+        // True if the walk stopped listing folders because it ran out of its entry budget
+        boolean budgetSpent;
+        final LinkedHashSet<String> uniqueExtensions = new LinkedHashSet<>();
+        // Files refer to their folder by index, so no per-file path string is built
+        private int[] fileFolders = new int[16];
+        private final List<String> fileNames = new ArrayList<>();
+        private final List<String> fileExtensions = new ArrayList<>();
+        private long[] fileSizes = new long[16];
+        private long[] fileModifiedTimes = new long[16];
+
+        private void addFile(int folder, String name, String extension, long size, long modifiedTime) {
+            int index = this.fileNames.size();
+            if (index == this.fileFolders.length) {
+                this.fileFolders = Arrays.copyOf(this.fileFolders, index * 2);
+                this.fileSizes = Arrays.copyOf(this.fileSizes, index * 2);
+                this.fileModifiedTimes = Arrays.copyOf(this.fileModifiedTimes, index * 2);
+            }
+            this.fileFolders[index] = folder;
+            this.fileSizes[index] = size;
+            this.fileModifiedTimes[index] = modifiedTime;
+            this.fileNames.add(name);
+            this.fileExtensions.add(extension);
+        }
+
+        int getFileCount() {
+            return this.fileNames.size();
+        }
+
+        /**
+         * Returns the folder of a file.
+         * @param index - The index of the file.
+         * @return - The index of the file's folder in folders.
+         */
+        int getFileFolder(int index) {
+            return this.fileFolders[Objects.checkIndex(index, getFileCount())];
+        }
+
+        String getFileName(int index) {
+            return this.fileNames.get(index);
+        }
+
+        String getFileExtension(int index) {
+            return this.fileExtensions.get(index);
+        }
+
+        long getFileSize(int index) {
+            return this.fileSizes[Objects.checkIndex(index, getFileCount())];
+        }
+
+        long getFileModifiedTime(int index) {
+            return this.fileModifiedTimes[Objects.checkIndex(index, getFileCount())];
+        }
+    }
+
+    /**
+     * A listed directory and the entries found directly inside it.
+     */
+    private static class DirectoryNode {
+        private final String path;
+        // Taken from the parent's listing, so the directory is not looked up again; -1 if not known
+        private final long modifiedTime;
+        // Relative to the base of the walk, with "/" between names, as matched by the scan options
+        private final String relativePath;
+        private final int depth;
+        // Taken from the parent's listing like the modification time; null if not known
+        private final Object folderKey;
+        private final List<String> fileNames = new ArrayList<>();
+        private final List<String> fileExtensions = new ArrayList<>();
+        private final List<Long> fileSizes = new ArrayList<>();
+        private final List<Long> fileModifiedTimes = new ArrayList<>();
+        private final List<DirectoryNode> children = new ArrayList<>();
+        private boolean fromIndex;
+
+        private DirectoryNode(String path, long modifiedTime, String relativePath, int depth, Object folderKey) {
+            this.path = path;
+            this.modifiedTime = modifiedTime;
+            this.relativePath = relativePath;
+            this.depth = depth;
+            this.folderKey = folderKey;
+        }
+    }
+
+    /**
+     * Lists a group of directories and forks a subtask for their subdirectories.
+     */
+    private class WalkTask extends RecursiveAction {
+        private final List<DirectoryNode> nodes;
+
+        private WalkTask(List<DirectoryNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subtasks = new ArrayList<>();
+
+            for (DirectoryNode node : this.nodes) {
+                if (listener.isCancelled()) {
+                    return;
+                }
+
+                ScanIndex.DirectoryRecord record = readDirectory(node);
+                if (record == null) {
+                    continue; // Skip non-existent directories
+                }
+
+                for (int i = 0; i < record.names.length; i++) {
+                    if (record.isLink(i) && !options.followsLinks()) {
+                        continue;
+                    }
+                    if (record.isFile(i)) {
+                        if (!options.acceptsFile(node.relativePath, record.names[i], node.depth + 1)) {
+                            continue;
+                        }
+                        String extension = getFileExtension(record.names[i]);
+                        node.fileNames.add(record.names[i]);
+                        node.fileExtensions.add(extension);
+                        node.fileSizes.add(record.sizes[i]);
+                        node.fileModifiedTimes.add(record.modifiedTimes[i]);
+
+                        if (!extension.isEmpty() && seenExtensions.add(ExtensionIndex.normalize(extension))) {
+                            listener.onFound(new ScannedFile(ExtensionIndex.normalize(extension), ScannedFile.Type.EXTENSION));
+                        }
+                    } else if (options.acceptsFolder(node.relativePath, record.names[i], node.depth + 1)) {
+                        // A cached modification time may be stale, as changes inside a folder do not touch its parent
+                        DirectoryNode child = new DirectoryNode(node.path + File.separator + record.names[i],
+                                node.fromIndex ? -1 : record.modifiedTimes[i],
+                                ScanOptions.childPath(node.relativePath, record.names[i]), node.depth + 1,
+                                record.fileKeys == null ? null : record.fileKeys[i]);
+                        node.children.add(child);
+                        listener.onFound(new ScannedFile(child.path, ScannedFile.Type.FOLDER));
+                    } else {
+                        metrics.foldersPruned.increment();
+                    }
+                }
+                metrics.filesSeen.add(node.fileNames.size());
+                listener.onEntriesScanned(record.names.length);
+
+                // Split each subtree off so idle workers can steal it
+                for (DirectoryNode child : node.children) {
+                    subtasks.add(new WalkTask(List.of(child)));
+                }
+            }
+
+            invokeAll(subtasks);
+        }
+
+        /**
+         * Returns the files and folders directly inside a directory, unless the directory was already walked through
+         * another path or the entry budget is spent.
+         * @param node - The directory to read.
+         * @return - The directory's entries, or null if it is not listed or cannot be listed.
+         */
+        private ScanIndex.DirectoryRecord readDirectory(DirectoryNode node) {
+            metrics.directoriesVisited.increment();
+            if (entryBudget.get() <= 0) {
+                budgetSpent = true;
+                return null;
+            }
+
+            // Looked up at most once, for both the index and loop detection
+            BasicFileAttributes attributes = null;
+            if ((scanIndex != null && node.modifiedTime < 0) || (options.followsLinks() && node.folderKey == null)) {
+                attributes = readAttributes(Path.of(node.path));
+            }
+            if (options.followsLinks()) {
+                Object folderKey = node.folderKey != null ? node.folderKey : folderKey(Path.of(node.path), attributes);
+                if (folderKey != null && !walkedFolders.add(folderKey)) {
+                    return null; // Reached again through a link, possibly a loop back to a parent
+                }
+            }
+
+            ScanIndex.DirectoryRecord record = listOrReuse(node, attributes);
+            if (record != null) {
+                entryBudget.addAndGet(-record.names.length);
+            }
+            return record;
+        }
+
+        /**
+         * Returns the files and folders directly inside a directory, from the scan index if the
+         * directory is unchanged since it was last listed, otherwise by listing it.
+         * @param node - The directory to read.
+         * @param attributes - The directory's attributes if they were read already, otherwise null.
+         * @return - The directory's entries, or null if it cannot be listed.
+         */
+        private ScanIndex.DirectoryRecord listOrReuse(DirectoryNode node, BasicFileAttributes attributes) {
+            long modifiedTime = 0;
+            if (scanIndex != null) {
+                if (node.modifiedTime >= 0) {
+                    modifiedTime = node.modifiedTime;
+                } else if (attributes != null) {
+                    modifiedTime = attributes.lastModifiedTime().toMillis();
+                }
+                ScanIndex.DirectoryRecord cached = scanIndex.get(node.path);
+                if (cached != null && cached.isCurrent(modifiedTime)) {
+                    node.fromIndex = true;
+                    return cached;
+                }
+            }
+
+            long listedTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            DirectoryListedEvent event = new DirectoryListedEvent();
+            event.begin();
+            ScanIndex.DirectoryRecord record = listDirectory(Path.of(node.path), modifiedTime, listedTime, event);
+            if (record == null) {
+                if (scanIndex != null) {
+                    scanIndex.remove(node.path);
+                }
+                return null;
+            }
+
+            if (scanIndex != null) {
+                scanIndex.put(node.path, record);
+            }
+            long endNanos = System.nanoTime();
+            metrics.directoriesListed.increment();
+            metrics.directoryListingLatency.record(endNanos - startNanos);
+
+            commit(event, node.path, record);
+            return record;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Finds byte-identical files in three narrowing stages, so most files are never read in full:
+ * files are first bucketed by size, files sharing a size are then compared by a hash of their first and
+ * last few kilobytes, and only files that still match are hashed in full. Hashing runs in parallel.
+ * Empty files are never duplicates: they are usually placeholders such as .gitkeep or __init__.py, whose place matters.
+ */
+public class DuplicateFinder {
+    private static final int PARTIAL_BYTES = 4096;
+    private static final int FULL_HASH_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> PARTIAL_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(PARTIAL_BYTES));
+    private static final ThreadLocal<ByteBuffer> FULL_HASH_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(FULL_HASH_BUFFER_SIZE));
+
+    private final int parallelism;
+
+    /**
+     * What a sort does with files that duplicate another file in the same sort.
+     */
+    public enum Policy {
+        // Move duplicates like any other file
+        MOVE,
+        // Leave duplicates where they are
+        SKIP,
+        // Hard-link duplicates to the moved copy instead of moving their data, falling back to a move where links are not possible
+        LINK
+    }
+
+    /**
+     * A set of byte-identical files.
+     */
+    public static class Group {
+        private final int[] indices;
+        private final List<Path> files;
+        private final long size;
+
+        private Group(int[] indices, List<Path> files, long size) {
+            this.indices = indices;
+            this.files = files;
+            this.size = size;
+        }
+
+        /**
+         * Returns the positions of the files in the list given to find(), in that list's order.
+         * @return - The file positions.
+         */
+        int[] getIndices() {
+            return indices;
+        }
+
+        /**
+         * Getter for files.
+         * @return - The identical files; the first is the original that the others duplicate.
+         */
+        public List<Path> getFiles() {
+            return files;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the bytes taken up by the duplicates, not counting the original.
+         * @return - The redundant size in bytes.
+         */
+        public long getRedundantBytes() {
+            return this.size * (this.files.size() - 1);
+        }
+    }
+
+    /**
+     * Constructor for DuplicateFinder class.
+     * @param parallelism - The number of files hashed at the same time.
+     */
+    public DuplicateFinder(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Finds the groups of byte-identical files among the given files. Empty files and files that cannot be read are left out.
+     * @param files - The files to compare.
+     * @param sizes - The size of each file, as found by the scan.
+     * @param listener - Can cancel the search.
+     * @return - The groups of two or more identical files, in the order their first files were given.
+     * @throws CancellationException - If the listener cancelled the search.
+     */
+    public List<Group> find(List<Path> files, long[] sizes, ScanListener listener) {
+        // Stage 1: files with a size no other file has cannot have a duplicate
+        List<int[]> candidates = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> entry : groupBy(files.size(), i -> sizes[i]).entrySet()) {
+            List<Integer> sameSize = entry.getValue();
+            if (entry.getKey() > 0 && sameSize.size() > 1) {
+                candidates.add(sameSize.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+
+        // Stage 2: hash the start and end of each candidate; small files are read whole, so this hash is final for them
+        String[] partialHashes = hashAll(files, candidates, false, listener);
+        List<int[]> partialMatches = regroup(candidates, partialHashes);
+
+        // Stage 3: hash the remaining larger files in full
+        List<int[]> needFullHash = new ArrayList<>();
+        List<int[]> matches = new ArrayList<>();
+        for (int[] group : partialMatches) {
+            if (sizes[group[0]] > 2L * PARTIAL_BYTES) {
+                needFullHash.add(group);
+            } else {
+                matches.add(group);
+            }
+        }
+        String[] fullHashes = hashAll(files, needFullHash, true, listener);
+        matches.addAll(regroup(needFullHash, fullHashes));
+
+        // Keep the order of the input, so the first file of each group is the one found first
+        matches.sort((a, b) -> Integer.compare(a[0], b[0]));
+        ArrayList<Group> groups = new ArrayList<>();
+        for (int[] indices : matches) {
+            ArrayList<Path> groupFiles = new ArrayList<>();
+            for (int index : indices) {
+                groupFiles.add(files.get(index));
+            }
+            groups.add(new Group(indices, Collections.unmodifiableList(groupFiles), sizes[indices[0]]));
+        }
+        return groups;
+    }
+
+    /**
+     * Hashes every file in the given groups in parallel.
+     * @param files - All files.
+     * @param groups - The positions of the files to hash, in groups.
+     * @param full - True to hash whole files, false to hash only their first and last PARTIAL_BYTES.
+     * @param listener - Can cancel the hashing.
+     * @return - The hash per file position; null for files not hashed or that could not be read.
+     */
+    private String[] hashAll(List<Path> files, List<int[]> groups, boolean full, ScanListener listener) {
+        String[] hashes = new String[files.size()];
+        int[] toHash = groups.stream().flatMapToInt(IntStream::of).toArray();
+        if (toHash.length == 0) {
+            return hashes;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.submit(() -> IntStream.of(toHash).parallel().forEach(i -> {
+                if (!listener.isCancelled()) {
+                    hashes[i] = full ? fullHash(files.get(i)) : partialHash(files.get(i));
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        if (listener.isCancelled()) {
+            throw new CancellationException("Duplicate search cancelled");
+        }
+        return hashes;
+    }
+
+    /**
+     * Splits each group further by hash, keeping only the parts with two or more files.
+     * @param groups - The groups to split.
+     * @param hashes - The hash per file position.
+     * @return - The files that still match, in groups.
+     */
+    private static List<int[]> regroup(List<int[]> groups, String[] hashes) {
+        ArrayList<int[]> regrouped = new ArrayList<>();
+        for (int[] group : groups) {
+            for (List<Integer> sameHash : groupBy(group.length, i -> hashes[group[i]]).values()) {
+                if (sameHash.size() > 1 && hashes[group[sameHash.get(0)]] != null) {
+                    regrouped.add(sameHash.stream().mapToInt(i -> group[i]).toArray());
+                }
+            }
+        }
+        return regrouped;
+    }
+
+    private static <K> Map<K, List<Integer>> groupBy(int count, IntFunction<K> key) {
+        LinkedHashMap<K, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            groups.computeIfAbsent(key.apply(i), k -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    /**
+     * Hashes the first and last PARTIAL_BYTES of a file, or the whole file if it is no larger than both together.
+     * @param file - The file to hash.
+     * @return - The hash, or null if the file cannot be read.
+     */
+    private static String partialHash(Path file) {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = PARTIAL_BUFFER.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= 2L * PARTIAL_BYTES) {
+                return fullHash(channel, digest, buffer);
+            }
+            readFully(channel, buffer.clear(), 0);
+            digest.update(buffer.flip());
+            readFully(channel, buffer.clear(), size - PARTIAL_BYTES);
+            digest.update(buffer.flip());
+        } catch (IOException exception) {
+            return null;
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a whole file, reading it in large blocks.
+     * @param file - The file to hash.
+     * @return - The hash, or null if the file cannot be read.
+     */
+    private static String fullHash(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return fullHash(channel, newDigest(), FULL_HASH_BUFFER.get());
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    private static String fullHash(FileChannel channel, MessageDigest digest, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            digest.update(buffer.flip());
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break; // The file shrank since it was sized
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
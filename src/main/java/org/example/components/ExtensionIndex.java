@@ -0,0 +1,318 @@
+package org.example.components;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hash index of scanned files keyed by their normalized file extension.
+ * Each extension keeps a compact list of its files, a file count and a total byte size.
+ * Files are stored as a directory index plus a packed name in a shared PathArena, so the index holds a
+ * few bytes per file rather than a full path string; paths are built only when asked for.
+ * Extensions are kept in the order they were first found.
+ */
+public class ExtensionIndex {
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final PathArena arena = new PathArena();
+
+    /**
+     * Normalizes a file extension so that e.g. ".JPG" and ".jpg" share one entry.
+     * @param extension - The raw file extension, including the leading dot.
+     * @return - The case-folded, interned extension.
+     */
+    public static String normalize(String extension) {
+        return extension.toLowerCase(Locale.ROOT).intern();
+    }
+
+    /**
+     * Adds a file to the index.
+     * @param filePath - The absolute path of the file.
+     * @param extension - The file extension of the file.
+     * @param size - The size of the file in bytes.
+     * @return - True if this is the first file found with this extension.
+     */
+    public boolean add(String filePath, String extension, long size) {
+        return add(filePath, extension, size, 0);
+    }
+
+    /**
+     * Adds a file to the index.
+     * @param filePath - The absolute path of the file.
+     * @param extension - The file extension of the file.
+     * @param size - The size of the file in bytes.
+     * @param modifiedTime - The modification time of the file in milliseconds since the epoch, or 0 if it is not known.
+     * @return - True if this is the first file found with this extension.
+     */
+    public boolean add(String filePath, String extension, long size, long modifiedTime) {
+        int separator = filePath.lastIndexOf(File.separatorChar);
+        return add(this.arena.directory(filePath.substring(0, separator)), filePath.substring(separator + 1), extension, size, modifiedTime);
+    }
+
+    /**
+     * Returns the index of a directory, for adding the files in it with add(int, String, String, long, long).
+     * @param directoryPath - The full path of the directory.
+     * @return - The directory index.
+     */
+    int directory(String directoryPath) {
+        return this.arena.directory(directoryPath);
+    }
+
+    /**
+     * Adds a file to the index.
+     * @param directory - The index of the file's directory, as returned by directory().
+     * @param fileName - The name of the file.
+     * @param extension - The file extension of the file.
+     * @param size - The size of the file in bytes.
+     * @param modifiedTime - The modification time of the file in milliseconds since the epoch, or 0 if it is not known.
+     * @return - True if this is the first file found with this extension.
+     */
+    boolean add(int directory, String fileName, String extension, long size, long modifiedTime) {
+        String key = normalize(extension);
+        Entry entry = this.entries.get(key);
+        boolean isNewExtension = entry == null;
+        if (isNewExtension) {
+            entry = new Entry(key, this.arena);
+            this.entries.put(key, entry);
+        }
+        entry.add(directory, this.arena.addName(fileName), size, modifiedTime);
+        return isNewExtension;
+    }
+
+    /**
+     * Removes a file from the index. An extension whose last file is removed is dropped from the index.
+     * @param filePath - The absolute path of the file.
+     * @param extension - The file extension of the file.
+     * @return - True if the file was in the index.
+     */
+    public boolean remove(String filePath, String extension) {
+        String key = normalize(extension);
+        Entry entry = this.entries.get(key);
+        int separator = filePath.lastIndexOf(File.separatorChar);
+        int directory = this.arena.findDirectory(filePath.substring(0, separator));
+        if (entry == null || directory < 0 || !entry.remove(directory, filePath.substring(separator + 1))) {
+            return false;
+        }
+
+        if (entry.getFileCount() == 0) {
+            this.entries.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Removes many files from the index at once, e.g. those moved by a sort. Each extension is compacted
+     * in a single pass, keeping the order of its remaining files; emptied extensions are dropped.
+     * @param files - The files to remove. Files not in the index are ignored.
+     * @return - The number of files removed.
+     */
+    public int removeAll(Collection<Path> files) {
+        // Group the files by directory, so each indexed file is checked against only the files of its own directory.
+        // Every extension is checked, as a file may be indexed under a type detected from its content rather than its name.
+        HashMap<Integer, HashSet<String>> namesByDirectory = new HashMap<>();
+        for (Path file : files) {
+            Path parent = file.getParent();
+            int directory = parent == null ? -1 : this.arena.findDirectory(parent.toString());
+            if (directory >= 0) {
+                namesByDirectory.computeIfAbsent(directory, key -> new HashSet<>()).add(file.getFileName().toString());
+            }
+        }
+        if (namesByDirectory.isEmpty()) {
+            return 0;
+        }
+
+        int removed = 0;
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            removed += entry.removeAll(namesByDirectory);
+            if (entry.getFileCount() == 0) {
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Retrieves the entry for a file extension.
+     * @param extension - The file extension to look up.
+     * @return - The entry, or null if no file has this extension.
+     */
+    public Entry get(String extension) {
+        return this.entries.get(normalize(extension));
+    }
+
+    /**
+     * Returns all entries in the order their extensions were first found.
+     * @return - An unmodifiable view of the entries.
+     */
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(this.entries.values());
+    }
+
+    /**
+     * Returns the number of distinct extensions in the index.
+     * @return - The number of extensions.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * The files found for a single extension.
+     */
+    public static class Entry {
+        private final String extension;
+        private final PathArena arena;
+        private int[] directories = new int[4];
+        private int[] names = new int[4];
+        private long[] fileSizes = new long[4];
+        private long[] fileModifiedTimes = new long[4];
+        private int fileCount;
+        private long totalBytes;
+
+        private Entry(String extension, PathArena arena) {
+            this.extension = extension;
+            this.arena = arena;
+        }
+
+        private void add(int directory, int name, long size, long modifiedTime) {
+            if (this.fileCount == this.directories.length) {
+                this.directories = Arrays.copyOf(this.directories, this.fileCount * 2);
+                this.names = Arrays.copyOf(this.names, this.fileCount * 2);
+                this.fileSizes = Arrays.copyOf(this.fileSizes, this.fileCount * 2);
+                this.fileModifiedTimes = Arrays.copyOf(this.fileModifiedTimes, this.fileCount * 2);
+            }
+            this.directories[this.fileCount] = directory;
+            this.names[this.fileCount] = name;
+            this.fileSizes[this.fileCount] = size;
+            this.fileModifiedTimes[this.fileCount] = modifiedTime;
+            this.fileCount++;
+            this.totalBytes += size;
+        }
+
+        private boolean remove(int directory, String fileName) {
+            for (int i = 0; i < this.fileCount; i++) {
+                if (this.directories[i] == directory && this.arena.name(this.names[i]).equals(fileName)) {
+                    // Fill the gap with the last file; the packed name stays in the arena until the index is dropped
+                    this.totalBytes -= this.fileSizes[i];
+                    this.fileCount--;
+                    this.directories[i] = this.directories[this.fileCount];
+                    this.names[i] = this.names[this.fileCount];
+                    this.fileSizes[i] = this.fileSizes[this.fileCount];
+                    this.fileModifiedTimes[i] = this.fileModifiedTimes[this.fileCount];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int removeAll(Map<Integer, ? extends Set<String>> namesByDirectory) {
+            int kept = 0;
+            for (int i = 0; i < this.fileCount; i++) {
+                Set<String> names = namesByDirectory.get(this.directories[i]);
+                if (names != null && names.contains(this.arena.name(this.names[i]))) {
+                    this.totalBytes -= this.fileSizes[i];
+                    continue;
+                }
+                this.directories[kept] = this.directories[i];
+                this.names[kept] = this.names[i];
+                this.fileSizes[kept] = this.fileSizes[i];
+                this.fileModifiedTimes[kept] = this.fileModifiedTimes[i];
+                kept++;
+            }
+            int removed = this.fileCount - kept;
+            this.fileCount = kept;
+            return removed;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * Returns the file paths for this extension. Each path string is built when it is read.
+         * @return - An unmodifiable view of the file paths.
+         */
+        public List<String> getFilePaths() {
+            return new AbstractList<>() {
+                @Override
+                public String get(int index) {
+                    return getFilePath(index);
+                }
+
+                @Override
+                public int size() {
+                    return fileCount;
+                }
+            };
+        }
+
+        /**
+         * Builds the full path of a file.
+         * @param index - The index of the file, below getFileCount().
+         * @return - The full path of the file.
+         */
+        public String getFilePath(int index) {
+            Objects.checkIndex(index, this.fileCount);
+            return this.arena.path(this.directories[index], this.names[index]);
+        }
+
+        /**
+         * Builds the Path of a file.
+         * @param index - The index of the file, below getFileCount().
+         * @return - The Path of the file.
+         */
+        public Path getFile(int index) {
+            Objects.checkIndex(index, this.fileCount);
+            return Path.of(this.arena.directoryPath(this.directories[index]), this.arena.name(this.names[index]));
+        }
+
+        /**
+         * Returns the name of a file.
+         * @param index - The index of the file, below getFileCount().
+         * @return - The file name, without its directory.
+         */
+        public String getFileName(int index) {
+            Objects.checkIndex(index, this.fileCount);
+            return this.arena.name(this.names[index]);
+        }
+
+        /**
+         * Returns the size of a file, as found by the scan.
+         * @param index - The index of the file, below getFileCount().
+         * @return - The size of the file in bytes.
+         */
+        public long getFileSize(int index) {
+            return this.fileSizes[Objects.checkIndex(index, this.fileCount)];
+        }
+
+        /**
+         * Returns the modification time of a file, as found by the scan.
+         * @param index - The index of the file, below getFileCount().
+         * @return - The modification time in milliseconds since the epoch, or 0 if it is not known.
+         */
+        public long getFileModifiedTime(int index) {
+            return this.fileModifiedTimes[Objects.checkIndex(index, this.fileCount)];
+        }
+    }
+}
@@ -1,18 +1,42 @@
 package org.example.components;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FileHandler {
     private String absolutePath;
     private String userExportFolderPath;
-    private ArrayList<String> fileExtensionPaths = new ArrayList<>();
+    private ExtensionIndex extensionIndex = new ExtensionIndex();
+    private int scanParallelism = Runtime.getRuntime().availableProcessors();
+    private int moveParallelism = Runtime.getRuntime().availableProcessors();
+    private boolean verifyCrossDeviceMoves;
+    private boolean scanIndexEnabled;
+    private Path scanIndexDirectory = ScanIndex.defaultDirectory();
+    private ScanIndex scanIndex;
+    private String scanIndexRoot;
+    private boolean moveJournalEnabled;
+    private Path moveJournalDirectory = MoveJournal.defaultDirectory();
+    private ContentSniffer contentSniffer;
+    private DuplicateFinder.Policy duplicatePolicy = DuplicateFinder.Policy.MOVE;
+    private SortRules sortRules = SortRules.NONE;
+    private CollisionResolver.Policy collisionPolicy = CollisionResolver.Policy.RENAME;
+    private ScanOptions scanOptions = new ScanOptions();
 
     /**
      * Constructor for FileHandler class.
@@ -40,6 +64,14 @@ public class FileHandler {
         this.absolutePath = newUserFolderPath;
     }
 
+    /**
+     * Getter for userExportFolderPath.
+     * @return - The absolute path of the export directory.
+     */
+    public String getUserExportFolderPath() {
+        return this.userExportFolderPath;
+    }
+
     /**
      * Sets the absolute path of the export directory.
      *
@@ -51,26 +83,282 @@ public class FileHandler {
         this.userExportFolderPath = userExportFolderPath;
     }
 
+    /**
+     * Getter for extensionIndex.
+     * @return - The index of files found by the last call to getFileExtensions.
+     */
+    public ExtensionIndex getExtensionIndex() {
+        return this.extensionIndex;
+    }
+
+    /**
+     * Getter for scanParallelism.
+     * @return - The number of threads used to walk folders.
+     */
+    public int getScanParallelism() {
+        return this.scanParallelism;
+    }
+
+    /**
+     * Sets the number of threads used to walk folders. A value of 1 walks on a single thread.
+     * @param scanParallelism - The number of threads, at least 1.
+     */
+    public void setScanParallelism(int scanParallelism) {
+        if (scanParallelism < 1) {
+            throw new IllegalArgumentException("Scan parallelism must be at least 1: " + scanParallelism);
+        }
+        this.scanParallelism = scanParallelism;
+    }
+
+    /**
+     * Getter for moveParallelism.
+     * @return - The number of files moved at the same time.
+     */
+    public int getMoveParallelism() {
+        return this.moveParallelism;
+    }
+
+    /**
+     * Sets the number of files moved at the same time. A value of 1 moves files one by one.
+     * @param moveParallelism - The number of concurrent moves, at least 1.
+     */
+    public void setMoveParallelism(int moveParallelism) {
+        if (moveParallelism < 1) {
+            throw new IllegalArgumentException("Move parallelism must be at least 1: " + moveParallelism);
+        }
+        this.moveParallelism = moveParallelism;
+    }
+
+    /**
+     * Sets whether files moved to another volume are compared by checksum before the original is deleted.
+     * @param verifyCrossDeviceMoves - True to verify cross-device copies.
+     */
+    public void setVerifyCrossDeviceMoves(boolean verifyCrossDeviceMoves) {
+        this.verifyCrossDeviceMoves = verifyCrossDeviceMoves;
+    }
+
+    /**
+     * Sets whether directory listings are cached in an on-disk index per scan root,
+     * so rescans only list directories that changed since the last scan.
+     * @param scanIndexEnabled - True to use the scan index.
+     */
+    public void setScanIndexEnabled(boolean scanIndexEnabled) {
+        this.scanIndexEnabled = scanIndexEnabled;
+    }
+
+    /**
+     * Sets the directory holding the scan index files.
+     * @param scanIndexDirectory - The index directory.
+     */
+    public void setScanIndexDirectory(Path scanIndexDirectory) {
+        this.scanIndexDirectory = scanIndexDirectory;
+        this.scanIndex = null;
+    }
+
+    /**
+     * Checks the scan index of the current scan root against the disk, dropping directories that changed or no longer exist.
+     * @return - The number of directories dropped from the index.
+     * @throws IOException - If the validated index cannot be saved.
+     */
+    public int validateScanIndex() throws IOException {
+        ScanIndex index = getScanIndex();
+        int dropped = index.validate();
+        index.save();
+        return dropped;
+    }
+
+    /**
+     * Discards the scan index of the current scan root, so the next scan lists every directory again.
+     * @throws IOException - If the index file cannot be deleted.
+     */
+    public void rebuildScanIndex() throws IOException {
+        getScanIndex().clear();
+    }
+
+    /**
+     * Sets whether sorts are written to a move journal per output folder, so they can be resumed after a crash and undone.
+     * @param moveJournalEnabled - True to journal moves.
+     */
+    public void setMoveJournalEnabled(boolean moveJournalEnabled) {
+        this.moveJournalEnabled = moveJournalEnabled;
+    }
+
+    /**
+     * Enables or disables content sniffing. When enabled, files without an extension or with an untrusted one
+     * (see ContentSniffer.DEFAULT_UNTRUSTED_EXTENSIONS) are sorted by the type detected from their first bytes.
+     * Detected types are cached for as long as sniffing stays enabled.
+     * @param contentSniffingEnabled - Whether files are sniffed.
+     */
+    public void setContentSniffingEnabled(boolean contentSniffingEnabled) {
+        if (!contentSniffingEnabled) {
+            this.contentSniffer = null;
+        } else if (this.contentSniffer == null) {
+            this.contentSniffer = new ContentSniffer();
+        }
+    }
+
+    /**
+     * Sets what a sort does with files that are byte-identical to another file in the same sort.
+     * With MOVE, the default, duplicates are not looked for.
+     * @param duplicatePolicy - The policy for duplicates.
+     */
+    public void setDuplicatePolicy(DuplicateFinder.Policy duplicatePolicy) {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * Sets the rules deciding which folder within Output each file is sorted into.
+     * @param sortRules - The compiled rules; SortRules.NONE sorts every file into its "&lt;ext&gt; files" folder.
+     */
+    public void setSortRules(SortRules sortRules) {
+        this.sortRules = sortRules;
+    }
+
+    /**
+     * Sets which folders and files scans prune, and how they treat symbolic links.
+     * @param scanOptions - The scan options; patterns and depths are relative to the user-specified path.
+     */
+    public void setScanOptions(ScanOptions scanOptions) {
+        this.scanOptions = scanOptions;
+    }
+
+    /**
+     * Sets what happens to files whose name is already taken at their destination.
+     * @param collisionPolicy - The policy; RENAME by default.
+     */
+    public void setCollisionPolicy(CollisionResolver.Policy collisionPolicy) {
+        this.collisionPolicy = collisionPolicy;
+    }
+
+    /**
+     * Sets the directory holding the move journal files.
+     * @param moveJournalDirectory - The journal directory.
+     */
+    public void setMoveJournalDirectory(Path moveJournalDirectory) {
+        this.moveJournalDirectory = moveJournalDirectory;
+    }
+
+    /**
+     * Checks whether the last journaled sort into the export folder left files unmoved, because it was interrupted or some moves failed.
+     * @return - True if there are moves to resume.
+     */
+    public boolean hasPendingMoves() {
+        Path journalFile = getMoveJournalFile();
+        if (!Files.exists(journalFile)) {
+            return false;
+        }
+        try (MoveJournal journal = MoveJournal.open(journalFile)) {
+            return !journal.getPendingMoves().isEmpty();
+        } catch (IOException exception) {
+            System.out.println("Error reading move journal: " + exception);
+            return false;
+        }
+    }
+
+    /**
+     * Finishes the last journaled sort into the export folder, without rescanning.
+     * Moves that completed before an interruption but were not yet marked in the journal are recognised and not repeated.
+     * @param listener - Receives each moved file, and can cancel the remaining moves.
+     * @return - The outcome of the resumed moves.
+     * @throws FileNotFoundException - If there is no journaled sort into the export folder.
+     * @throws IOException - If the journal cannot be read or written.
+     */
+    public MoveResult resumeMoves(ScanListener listener) throws IOException {
+        try (MoveJournal journal = MoveJournal.open(requireMoveJournalFile())) {
+            List<MoveEngine.Move> pending = new ArrayList<>();
+            for (MoveEngine.Move move : journal.getPendingMoves()) {
+                if (isMoved(move)) {
+                    journal.complete(move, MoveResult.Status.MOVED);
+                } else {
+                    Files.createDirectories(move.getDestination().getParent());
+                    pending.add(move);
+                }
+            }
+
+            MoveEngine moveEngine = new MoveEngine(this.moveParallelism);
+            moveEngine.setVerifyChecksums(this.verifyCrossDeviceMoves);
+            return moveEngine.move(pending, listener, journal);
+        }
+    }
+
+    /**
+     * Undoes the last journaled sort into the export folder, moving every sorted file back to where it was, newest first.
+     * A file that replaced an older one at its destination cannot be undone, as the older file is gone: it is left in place
+     * and reported as failed.
+     * Once everything is back the journal is deleted; otherwise it is kept, so undo can be run again.
+     * The emptied Output folders are left in place.
+     * @param listener - Receives each restored file, and can cancel the remaining moves.
+     * @return - The outcome of moving the files back.
+     * @throws FileNotFoundException - If there is no journaled sort into the export folder.
+     * @throws IOException - If the journal cannot be read.
+     */
+    public MoveResult undoMoves(ScanListener listener) throws IOException {
+        Path journalFile = requireMoveJournalFile();
+        List<MoveEngine.Move> moved;
+        try (MoveJournal journal = MoveJournal.open(journalFile)) {
+            moved = new ArrayList<>(journal.getCompletedMoves());
+            // Moves done just before a crash, whose marks never reached the journal
+            for (MoveEngine.Move move : journal.getPendingMoves()) {
+                if (isMoved(move)) {
+                    moved.add(move);
+                }
+            }
+        }
+
+        List<MoveEngine.Move> moveBack = new ArrayList<>();
+        List<MoveResult.Outcome> notRestorable = new ArrayList<>();
+        for (int i = moved.size() - 1; i >= 0; i--) {
+            MoveEngine.Move move = moved.get(i);
+            if (move.isReplaceExisting()) {
+                notRestorable.add(new MoveResult.Outcome(move.getDestination(), move.getSource(), MoveResult.Status.FAILED,
+                        "Replaced an older file when sorted, which cannot be restored; left in place", 0));
+            } else {
+                moveBack.add(new MoveEngine.Move(move.getDestination(), move.getSource(), move.getSize()));
+            }
+        }
+        MoveResult result = new MoveEngine(this.moveParallelism).move(moveBack, listener);
+        if (!notRestorable.isEmpty()) {
+            ArrayList<MoveResult.Outcome> outcomes = new ArrayList<>(result.getOutcomes());
+            outcomes.addAll(notRestorable);
+            result = new MoveResult(outcomes, result.getElapsedNanos());
+        }
+        if (result.getFailedCount() == 0 && !listener.isCancelled()) {
+            Files.delete(journalFile);
+        }
+        return result;
+    }
+
     // Scan user path and return files/folders in scanned path
     /**
      * Scans the user-specified path and returns files/folders in the scanned path.
      * @return - An array of ScannedFile objects representing files and folders.
      */
     public ScannedFile[] getFilesAndFolders() {
-        File folderToScan = new File(this.absolutePath);
-        ArrayList<ScannedFile> filesAndFolders = new ArrayList<>();
-
-        // determine file or folder
-        for (File file : Objects.requireNonNull(folderToScan.listFiles())) {
-            boolean isFile = file.isFile();
-            if (isFile) {
-                filesAndFolders.add(new ScannedFile(file.getName(), "file"));
-            } else {
-                filesAndFolders.add(new ScannedFile(file.getName(), "folder"));
-            }
-        }
+        return getFilesAndFolders(ScanListener.NONE);
+    }
 
-        return filesAndFolders.toArray(new ScannedFile[0]);
+    /**
+     * Scans the user-specified path and returns files/folders in the scanned path.
+     * @param listener - Receives each file/folder as it is found, and can cancel the scan.
+     * @return - An array of ScannedFile objects representing files and folders.
+     * @throws CancellationException - If the listener cancelled the scan.
+     */
+    public ScannedFile[] getFilesAndFolders(ScanListener listener) {
+        return streamFilesAndFolders(listener).peek(listener::onFound).toArray(ScannedFile[]::new);
+    }
+
+    /**
+     * Lazily lists the files and folders directly inside the user-specified path, by name.
+     * Files carry their size and modification time, and folders their modification time, as read by the listing.
+     * @param listener - Receives the number of entries listed, and can cancel the scan.
+     * @return - A stream of ScannedFile objects representing files and folders.
+     * @throws CancellationException - From the stream's terminal operation, if the listener cancelled the scan.
+     */
+    public Stream<ScannedFile> streamFilesAndFolders(ScanListener listener) {
+        return stream(new DirectoryIterator(List.of(new File(this.absolutePath)), false, true, true, listener,
+                this.scanOptions, Path.of(this.absolutePath)))
+                .map(entry -> new ScannedFile(new File(entry.getName()).getName(), entry.getType(),
+                        entry.getFileCount(), entry.getTotalBytes(), entry.getLastModified()));
     }
 
     /**
@@ -78,25 +366,71 @@ public class FileHandler {
      * @return - An array of ScannedFile object representing folder.
      */
     public ScannedFile[] getSubfolders() {
-        ArrayList<ScannedFile> scannedFolders = new ArrayList<>();
+        return getSubfolders(ScanListener.NONE);
+    }
 
-        // HINT: Pass empty String array to scan every folder
-        ArrayList<String> folders = getFoldersToScan(new String[] {});
-        for (String folderPath : Objects.requireNonNull(folders)) {
-            scannedFolders.add(new ScannedFile(folderPath, "folder"));
-        }
+    /**
+     * Returns all folders within the user-specified path, depth-first with every folder before its subfolders.
+     * @param listener - Receives each folder as it is found, and can cancel the scan.
+     * @return - An array of ScannedFile object representing folder.
+     * @throws CancellationException - If the listener cancelled the scan.
+     */
+    public ScannedFile[] getSubfolders(ScanListener listener) {
+        return streamSubfolders(listener).peek(listener::onFound).toArray(ScannedFile[]::new);
+    }
 
-        return scannedFolders.toArray(new ScannedFile[0]);
+    /**
+     * Lazily walks all folders within the user-specified path, by full path, depth-first with every folder before its subfolders.
+     * Only the folders on the current path are held in memory.
+     * @param listener - Receives the number of entries of every listed folder, and can cancel the scan.
+     * @return - A stream of ScannedFile objects representing folders.
+     * @throws CancellationException - From the stream's terminal operation, if the listener cancelled the scan.
+     */
+    public Stream<ScannedFile> streamSubfolders(ScanListener listener) {
+        return stream(new DirectoryIterator(List.of(new File(this.absolutePath)), true, false, true, listener,
+                this.scanOptions, Path.of(this.absolutePath)));
+    }
+
+    /**
+     * Lazily walks every file in the chosen files and folders, by full path and with its size and modification time, depth-first.
+     * Only the folders on the current path are held in memory.
+     * @param chosenFolders - Folders within the user-specified path to walk.
+     * @param chosenFiles - Files within the user-specified path to include.
+     * @param listener - Receives the number of entries of every listed folder, and can cancel the scan.
+     * @return - A stream of ScannedFile objects representing files, each with a file count of 1 and its size in bytes.
+     * @throws CancellationException - From the stream's terminal operation, if the listener cancelled the scan.
+     */
+    public Stream<ScannedFile> streamFiles(String[] chosenFolders, String[] chosenFiles, ScanListener listener) {
+        List<File> roots = new ArrayList<>();
+        for (String chosenFile : chosenFiles) {
+            roots.add(new File(this.absolutePath + File.separator + chosenFile));
+        }
+        for (String chosenFolder : chosenFolders) {
+            roots.add(new File(this.absolutePath + File.separator + chosenFolder));
+        }
+        return stream(new DirectoryIterator(roots, true, true, false, listener, this.scanOptions, Path.of(this.absolutePath)));
     }
 
     /**
      * Creates a folder structure within the user-specified export path, based on the provided file extensions.
      * @param fileExtensions - An array of file extensions to create folders for.
+     * @return - The outcome of moving the files into the created folders.
      */
-    public void createFolderStructure(String[] fileExtensions) {
+    public MoveResult createFolderStructure(String[] fileExtensions) {
+        return createFolderStructure(fileExtensions, ScanListener.NONE);
+    }
+
+    /**
+     * Creates a folder structure within the user-specified export path for the files of the provided extensions,
+     * as laid out by the sort rules, and moves the files into it.
+     * @param fileExtensions - An array of file extensions to sort the files of.
+     * @param listener - Receives each moved file, and can cancel the remaining moves.
+     * @return - The outcome of moving the files into the created folders.
+     */
+    public MoveResult createFolderStructure(String[] fileExtensions, ScanListener listener) {
         // No folders to create
         if (fileExtensions.length == 0) {
-            return;
+            return MoveResult.empty();
         }
 
         // Use scan folder, if new path doesn't exist
@@ -105,62 +439,230 @@ public class FileHandler {
             this.userExportFolderPath = this.absolutePath;
         }
 
+        return executePlan(planSort(fileExtensions), listener);
+    }
+
+    /**
+     * Runs a move plan: creates the Output folder and every destination folder of the plan once, then moves the files.
+     * @param plan - The plan, as made by planSort().
+     * @param listener - Receives each moved file, and can cancel the remaining moves.
+     * @return - The outcome of every move; moves into a folder that cannot be created fail, the others still run.
+     *           Moved files are also removed from the extension index.
+     */
+    public MoveResult executePlan(MovePlan plan, ScanListener listener) {
+        ArrayList<MoveEngine.Move> moves = new ArrayList<>(plan.getFileCount());
+        ArrayList<MoveResult.Outcome> notMoved = new ArrayList<>(plan.getSkipped());
+        String outputError = null;
         try {
-            // Create output folder
-            String outputFolder = this.userExportFolderPath + File.separator + "Output";
-            Path pathToNewDirectory = Paths.get(outputFolder);
-            boolean newOutputDirectoryExists = pathToNewDirectory.toFile().exists();
-
-            // Avoid FileAlreadyExistsException
-            if (!newOutputDirectoryExists) {
-                Files.createDirectory(pathToNewDirectory);
-            }
+            createFolder(Paths.get(this.userExportFolderPath, "Output"));
+        } catch (IOException exception) {
+            outputError = "Cannot create directory: " + exception;
+        }
 
-            // Create folder per file extension
-            for (String fileExtension : fileExtensions) {
-                String extensionDirectory = outputFolder + File.separator + fileExtension + " files";
-                Path pathToNewExtensionDirectory = Paths.get(extensionDirectory);
-                boolean newExtensionDirectoryExists = pathToNewExtensionDirectory.toFile().exists();
+        for (MovePlan.Destination destination : plan.getDestinations()) {
+            String error = outputError;
+            if (error == null) {
+                try {
+                    createFolder(destination.getFolder());
+                } catch (IOException exception) {
+                    // Reported with each move that needed the folder
+                    error = "Cannot create directory: " + exception;
+                }
+            }
 
-                // Avoid FileAlreadyExistsException
-                if (!newExtensionDirectoryExists) {
-                    Files.createDirectory(pathToNewExtensionDirectory);
+            if (error == null) {
+                moves.addAll(destination.getMoves());
+            } else {
+                for (MoveEngine.Move move : destination.getMoves()) {
+                    notMoved.add(new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.FAILED, error, 0));
                 }
             }
-        } catch (IOException exception) {
-            System.out.println("Error creating directory: " + exception);
-            return;
         }
 
-        moveFilesToFolderStructure(fileExtensions);
+        return moveFiles(moves, notMoved, listener);
+    }
+
+    /**
+     * Moves files from the user-specified path to the created folder structure based on their file extensions.
+     * @param fileExtensions - An array of file extensions to move files for.
+     * @return - The outcome of every move.
+     */
+    public MoveResult moveFilesToFolderStructure(String[] fileExtensions) {
+        return moveFilesToFolderStructure(fileExtensions, ScanListener.NONE);
     }
 
     /**
      * Moves files from the user-specified path to the created folder structure based on their file extensions.
      * @param fileExtensions - An array of file extensions to move files for.
+     * @param listener - Receives each moved file, and can cancel the remaining moves.
+     * @return - The outcome of every move; once cancelled, the remaining files are reported as skipped.
+     *           Moved files are also removed from the extension index.
      */
-    public void moveFilesToFolderStructure(String[] fileExtensions) {
-        // Check if fileExtensions exists fileExtensionPaths, then add to output folder structure
+    public MoveResult moveFilesToFolderStructure(String[] fileExtensions, ScanListener listener) {
+        MovePlan plan = planSort(fileExtensions);
+        return moveFiles(plan.getMoves(), plan.getSkipped(), listener);
+    }
+
+    /**
+     * Moves files as planned, applying the duplicate policy and journaling the moves when enabled.
+     * @param moves - The planned moves.
+     * @param skipped - The files the plan leaves where they are or cannot move, reported after the moves.
+     * @param listener - Receives each moved file, and can cancel the remaining moves.
+     * @return - The outcome of every move; moved files are also removed from the extension index.
+     */
+    private MoveResult moveFiles(List<MoveEngine.Move> moves, List<MoveResult.Outcome> skipped, ScanListener listener) {
+        Metrics metrics = Metrics.get();
+        long startNanos = System.nanoTime();
+        metrics.sortsInFlight.increment();
+        MoveResult result;
         try {
-            // Move files to created folder structure
-            for (String fileExtensionPath : this.fileExtensionPaths) {
-                File file = new File(fileExtensionPath);
-                String extension = getFileExtension(file.getName());
-
-                // Check if iterated getFileExtensions(fileExtensions) exists fileExtensionPaths
-                if (Arrays.asList(fileExtensions).contains(extension)) {
-                    String outputFolder = this.userExportFolderPath + File.separator + "Output";
-                    String extensionDirectory = outputFolder + File.separator + extension + " files";
-
-                    // Move
-                    Path sourcePath = Paths.get(fileExtensionPath);
-                    Path destinationPath = Paths.get(extensionDirectory + File.separator + file.getName());
-                    Files.move(sourcePath, destinationPath);
+
+            // Set duplicates apart: skipped ones are not moved at all, linked ones are moved after their originals
+            ArrayList<MoveResult.Outcome> skippedDuplicates = new ArrayList<>();
+            ArrayList<MoveEngine.Move> linkedDuplicates = new ArrayList<>();
+            if (this.duplicatePolicy != DuplicateFinder.Policy.MOVE) {
+                moves = separateDuplicates(moves, skippedDuplicates, linkedDuplicates, listener);
+            }
+            skippedDuplicates.addAll(skipped);
+
+            // Move to created folder structure
+            MoveEngine moveEngine = new MoveEngine(this.moveParallelism);
+            moveEngine.setVerifyChecksums(this.verifyCrossDeviceMoves);
+            ArrayList<MoveEngine.Move> journaledMoves = new ArrayList<>(moves);
+            journaledMoves.addAll(linkedDuplicates);
+            MoveJournal journal = startMoveJournal(journaledMoves);
+            try {
+                result = moveEngine.move(moves, listener, journal);
+                if (!linkedDuplicates.isEmpty()) {
+                    MoveResult linked = moveEngine.move(linkedDuplicates, listener, journal);
+                    ArrayList<MoveResult.Outcome> outcomes = new ArrayList<>(result.getOutcomes());
+                    outcomes.addAll(linked.getOutcomes());
+                    result = new MoveResult(outcomes, result.getElapsedNanos() + linked.getElapsedNanos());
                 }
+            } finally {
+                closeMoveJournal(journal);
             }
-        } catch (IOException exception) {
-            System.out.println("Error moving files to folder structure: " + exception);
+            if (!skippedDuplicates.isEmpty()) {
+                ArrayList<MoveResult.Outcome> outcomes = new ArrayList<>(result.getOutcomes());
+                outcomes.addAll(skippedDuplicates);
+                result = new MoveResult(outcomes, result.getElapsedNanos());
+            }
+        } finally {
+            metrics.sortsInFlight.decrement();
+            metrics.sortLatency.record(System.nanoTime() - startNanos);
         }
+        for (MoveResult.Outcome failed : result.getOutcomes(MoveResult.Status.FAILED)) {
+            System.out.println("Error moving " + failed.getSource() + ": " + failed.getReason());
+        }
+
+        // Keep the index in step with the disk, so the remaining extensions are known without a rescan
+        ArrayList<Path> movedFiles = new ArrayList<>();
+        for (MoveResult.Outcome moved : result.getOutcomes(MoveResult.Status.MOVED)) {
+            movedFiles.add(moved.getSource());
+        }
+        this.extensionIndex.removeAll(movedFiles);
+        return result;
+    }
+
+    /**
+     * Finds byte-identical files among the indexed files of the given extensions, without moving anything.
+     * @param fileExtensions - An array of file extensions to look for duplicates in.
+     * @param listener - Can cancel the search.
+     * @return - The groups of identical files; the first file of each group is the one a sort keeps.
+     * @throws CancellationException - If the listener cancelled the search.
+     */
+    public List<DuplicateFinder.Group> findDuplicates(String[] fileExtensions, ScanListener listener) {
+        return findDuplicates(planMoves(fileExtensions).getMoves(), listener);
+    }
+
+    private List<DuplicateFinder.Group> findDuplicates(List<MoveEngine.Move> moves, ScanListener listener) {
+        ArrayList<Path> files = new ArrayList<>(moves.size());
+        long[] sizes = new long[moves.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            files.add(moves.get(i).getSource());
+            sizes[i] = moves.get(i).getSize();
+        }
+        return new DuplicateFinder(this.scanParallelism).find(files, sizes, listener);
+    }
+
+    /**
+     * Applies the duplicate policy to planned moves. The first file of each group of identical files is moved as usual.
+     * With SKIP, the other files stay where they are. With LINK, they are linked to the moved original, unless they would
+     * land on the original's own destination, in which case they stay where they are too.
+     * @param moves - The planned moves.
+     * @param skippedDuplicates - Receives an outcome for every duplicate left in place.
+     * @param linkedDuplicates - Receives the moves of duplicates to link once the originals are moved.
+     * @param listener - Can cancel the search for duplicates.
+     * @return - The moves of every file that is not a duplicate, in the order planned.
+     */
+    private List<MoveEngine.Move> separateDuplicates(List<MoveEngine.Move> moves, List<MoveResult.Outcome> skippedDuplicates,
+                                                     List<MoveEngine.Move> linkedDuplicates, ScanListener listener) {
+        boolean[] duplicate = new boolean[moves.size()];
+        Metrics metrics = Metrics.get();
+        for (DuplicateFinder.Group group : findDuplicates(moves, listener)) {
+            MoveEngine.Move original = moves.get(group.getIndices()[0]);
+            for (int i = 1; i < group.getIndices().length; i++) {
+                int index = group.getIndices()[i];
+                MoveEngine.Move move = moves.get(index);
+                duplicate[index] = true;
+                if (this.duplicatePolicy == DuplicateFinder.Policy.LINK && !move.getDestination().equals(original.getDestination())) {
+                    linkedDuplicates.add(new MoveEngine.Move(move.getSource(), move.getDestination(), move.getSize(),
+                            original.getDestination(), move.isReplaceExisting()));
+                } else {
+                    skippedDuplicates.add(new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.SKIPPED,
+                            "Duplicate of " + original.getSource(), 0));
+                }
+            }
+            metrics.duplicatesFound.add(group.getFiles().size() - 1);
+            metrics.duplicateBytes.add(group.getRedundantBytes());
+        }
+
+        ArrayList<MoveEngine.Move> remaining = new ArrayList<>();
+        for (int i = 0; i < duplicate.length; i++) {
+            if (!duplicate[i]) {
+                remaining.add(moves.get(i));
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Works out where every indexed file of the given extensions is moved to, by the sort rules, and settles clashing
+     * destination names by the collision policy. Only the destination folders are read, once each.
+     * The plan's totals can be shown as a dry run, and executePlan() then runs it.
+     * @param fileExtensions - An array of file extensions to move files for.
+     * @return - The move plan.
+     */
+    public MovePlan planSort(String[] fileExtensions) {
+        return new CollisionResolver(this.collisionPolicy).resolve(planMoves(fileExtensions));
+    }
+
+    /**
+     * Works out where every indexed file of the given extensions is moved to, by the sort rules, without touching the disk.
+     * @param fileExtensions - An array of file extensions to move files for.
+     * @return - The move plan, before destination names are checked for clashes.
+     */
+    private MovePlan planMoves(String[] fileExtensions) {
+        String outputFolder = this.userExportFolderPath + File.separator + "Output";
+        ArrayList<MoveEngine.Move> moves = new ArrayList<>();
+        // Rules lead many files to the same few folders, so each folder's Path is built once
+        HashMap<String, Path> destinationFolders = new HashMap<>();
+
+        // Collect the indexed files of each chosen extension
+        for (String fileExtension : fileExtensions) {
+            ExtensionIndex.Entry entry = this.extensionIndex.get(fileExtension);
+            if (entry == null) {
+                continue; // Nothing found for this extension
+            }
+
+            for (int i = 0; i < entry.getFileCount(); i++) {
+                Path sourcePath = entry.getFile(i);
+                String folder = this.sortRules.folderFor(entry.getFileName(i), entry.getExtension(), entry.getFileSize(i), entry.getFileModifiedTime(i));
+                Path destinationFolder = destinationFolders.computeIfAbsent(folder, key -> Paths.get(outputFolder, key));
+                moves.add(new MoveEngine.Move(sourcePath, destinationFolder.resolve(sourcePath.getFileName()), entry.getFileSize(i)));
+            }
+        }
+        return new MovePlan(moves);
     }
 
     /**
@@ -170,65 +672,188 @@ public class FileHandler {
      * @return - An array of ScannedFile objects representing unique file extensions.
      */
     public ScannedFile[] getFileExtensions(String[] chosenFolders, String[] chosenFiles) {
+        return getFileExtensions(chosenFolders, chosenFiles, ScanListener.NONE);
+    }
+
+    /**
+     * Scans the user-specified folders and files for unique file extensions.
+     * @param chosenFolders - An array of folders to scan for file extensions.
+     * @param chosenFiles - An array of files to scan for file extensions.
+     * @param listener - Receives each new file extension as it is found, and can cancel the scan.
+     * @return - An array of ScannedFile objects representing unique file extensions.
+     * @throws CancellationException - If the listener cancelled the scan.
+     */
+    public ScannedFile[] getFileExtensions(String[] chosenFolders, String[] chosenFiles, ScanListener listener) {
         // No folders to scan
         if (chosenFolders.length == 0 && chosenFiles.length == 0) {
             return new ScannedFile[] {};
         }
 
-        this.fileExtensionPaths = new ArrayList<>();
-        ArrayList<String> uniqueFileExtensions = new ArrayList<>();
-        ArrayList<ScannedFile> foundFileExtensions = new ArrayList<>();
-
-        // Scan chosenFiles for unique file extensions
+        ArrayList<ScannedFile> folders = new ArrayList<>();
+        for (String chosenFolder : chosenFolders) {
+            folders.add(new ScannedFile(chosenFolder, ScannedFile.Type.FOLDER));
+        }
+        ArrayList<ScannedFile> files = new ArrayList<>();
         for (String chosenFile : chosenFiles) {
-            String chosenFilePath = this.absolutePath + File.separator + chosenFile;
-            File file = new File(chosenFilePath);
-            String extension = getFileExtension(chosenFile);
-            String absoluteFilePath = file.getAbsolutePath();
+            BasicFileAttributes attributes = DirectoryWalker.readAttributes(Path.of(this.absolutePath, chosenFile));
+            if (attributes != null && attributes.isRegularFile()) {
+                files.add(new ScannedFile(chosenFile, ScannedFile.Type.FILE, 1, attributes.size(), attributes.lastModifiedTime().toMillis()));
+            }
+        }
+        return scanFileExtensions(folders, files, listener);
+    }
+
+    /**
+     * Scans files and folders found by getFilesAndFolders() for unique file extensions.
+     * The files' sizes and modification times are taken from the entries, so they are not looked up again.
+     * @param chosenEntries - Files and folders directly inside the user-specified path, by name.
+     * @param listener - Receives each new file extension as it is found, and can cancel the scan.
+     * @return - An array of ScannedFile objects representing unique file extensions.
+     * @throws CancellationException - If the listener cancelled the scan.
+     */
+    public ScannedFile[] getFileExtensions(ScannedFile[] chosenEntries, ScanListener listener) {
+        // No folders to scan
+        if (chosenEntries.length == 0) {
+            return new ScannedFile[] {};
+        }
+
+        ArrayList<ScannedFile> folders = new ArrayList<>();
+        ArrayList<ScannedFile> files = new ArrayList<>();
+        for (ScannedFile entry : chosenEntries) {
+            if (entry.getType() == ScannedFile.Type.FOLDER) {
+                folders.add(entry);
+            } else if (entry.getType() == ScannedFile.Type.FILE) {
+                files.add(entry);
+            }
+        }
+        return scanFileExtensions(folders, files, listener);
+    }
 
+    /**
+     * Runs indexFileExtensions() while recording scan metrics.
+     * @param chosenFolders - Folders to scan for file extensions.
+     * @param chosenFiles - Files to scan for file extensions.
+     * @param listener - Receives each new file extension as it is found, and can cancel the scan.
+     * @return - An array of ScannedFile objects representing unique file extensions.
+     */
+    private ScannedFile[] scanFileExtensions(List<ScannedFile> chosenFolders, List<ScannedFile> chosenFiles, ScanListener listener) {
+        Metrics metrics = Metrics.get();
+        long startNanos = System.nanoTime();
+        metrics.scansInFlight.increment();
+        try {
+            return indexFileExtensions(chosenFolders, chosenFiles, listener);
+        } finally {
+            metrics.scansInFlight.decrement();
+            metrics.scanLatency.record(System.nanoTime() - startNanos);
+        }
+    }
 
-            if (file.isFile() && !extension.isEmpty() && !uniqueFileExtensions.contains(extension)) {
-                // Add unique file extension
-                uniqueFileExtensions.add(extension);
-                foundFileExtensions.add(new ScannedFile(extension, "extension"));
+    /**
+     * Scans the user-specified folders and files for unique file extensions, and replaces the extension index with the result.
+     * @param chosenFolders - Folders to scan for file extensions.
+     * @param chosenFiles - Files to scan for file extensions, with their scanned sizes and modification times.
+     * @param listener - Receives each new file extension as it is found, and can cancel the scan.
+     * @return - An array of ScannedFile objects representing unique file extensions.
+     * @throws CancellationException - If the listener cancelled the scan.
+     */
+    private ScannedFile[] indexFileExtensions(List<ScannedFile> chosenFolders, List<ScannedFile> chosenFiles, ScanListener listener) {
+        ExtensionIndex index = new ExtensionIndex();
+
+        // Files whose type is detected from their content once everything is listed, by full path
+        ArrayList<ScannedFile> filesToSniff = new ArrayList<>();
+
+        // Scan chosenFiles for file extensions
+        for (ScannedFile chosenFile : chosenFiles) {
+            if (!this.scanOptions.acceptsFile("", chosenFile.getName(), 1)) {
+                continue;
             }
+            String chosenFilePath = new File(this.absolutePath, chosenFile.getName()).getAbsolutePath();
+            String extension = getFileExtension(chosenFile.getName());
 
-            if (file.isFile() && !extension.isEmpty() && !this.fileExtensionPaths.contains(absoluteFilePath)) {
-                // Add unique file extension path
-                this.fileExtensionPaths.add(absoluteFilePath);
+            if (this.contentSniffer != null && this.contentSniffer.shouldSniff(extension)) {
+                filesToSniff.add(new ScannedFile(chosenFilePath, ScannedFile.Type.FILE, 1, chosenFile.getTotalBytes(), chosenFile.getLastModified()));
+            } else if (!extension.isEmpty() && index.add(chosenFilePath, extension, chosenFile.getTotalBytes(), chosenFile.getLastModified())) {
+                listener.onFound(new ScannedFile(ExtensionIndex.normalize(extension), ScannedFile.Type.EXTENSION));
             }
         }
+        Metrics.get().filesSeen.add(chosenFiles.size());
+        listener.onEntriesScanned(chosenFiles.size());
 
-        ArrayList<String> folders = new ArrayList<>();
-        if (chosenFolders.length > 0) {
-            folders = getFoldersToScan(chosenFolders);
+        // Walk chosenFolders once, collecting files and extensions in the same pass
+        List<File> roots = new ArrayList<>();
+        for (ScannedFile chosenFolder : chosenFolders) {
+            roots.add(new File(this.absolutePath + File.separator + chosenFolder.getName()));
         }
+        DirectoryWalker.WalkResult walkResult = walk(roots, listener);
 
-        // Scan chosenFolders for unique file extensions
-        while (!folders.isEmpty()) {
-            String scanningFolder = folders.remove(0);
-            File folder = new File(scanningFolder);
-            if (folder.listFiles() == null) {
-                continue; // Skip non-existent directories
+        // Register every folder once; files then refer to it by index
+        int[] directories = new int[walkResult.folders.size()];
+        for (int i = 0; i < directories.length; i++) {
+            directories[i] = index.directory(walkResult.folders.get(i));
+        }
+        for (int i = 0; i < walkResult.getFileCount(); i++) {
+            String extension = walkResult.getFileExtension(i);
+            if (this.contentSniffer != null && this.contentSniffer.shouldSniff(extension)) {
+                String filePath = walkResult.folders.get(walkResult.getFileFolder(i)) + File.separator + walkResult.getFileName(i);
+                filesToSniff.add(new ScannedFile(filePath, ScannedFile.Type.FILE, 1, walkResult.getFileSize(i), walkResult.getFileModifiedTime(i)));
+            } else if (!extension.isEmpty()) {
+                index.add(directories[walkResult.getFileFolder(i)], walkResult.getFileName(i), extension,
+                        walkResult.getFileSize(i), walkResult.getFileModifiedTime(i));
             }
+        }
+        if (!filesToSniff.isEmpty()) {
+            addSniffedFiles(index, filesToSniff, listener);
+        }
+        this.extensionIndex = index;
+        Metrics.get().extensionsDiscovered.add(index.size());
 
-            // Scan folder
-            for (File file : Objects.requireNonNull(folder.listFiles())) {
-                String extension = getFileExtension(file.getName());
-                String absoluteFilePath = file.getAbsolutePath();
-
-                if (file.isFile() && !extension.isEmpty() && !uniqueFileExtensions.contains(extension)) {
-                    // Add unique file extension
-                    uniqueFileExtensions.add(extension);
-                    foundFileExtensions.add(new ScannedFile(extension, "extension"));
-                }
+        return getIndexedFileExtensions();
+    }
 
-                if (file.isFile() && !extension.isEmpty() && !this.fileExtensionPaths.contains(absoluteFilePath)) {
-                    // Add unique file extension path
-                    this.fileExtensionPaths.add(absoluteFilePath);
-                }
+    /**
+     * Detects the types of files from their content, in parallel, and adds them to the index under the detected type.
+     * Files whose content matches no known type keep their own extension, if they have one.
+     * @param index - The index to add the files to.
+     * @param files - The files to sniff, by full path and with their sizes and modification times.
+     * @param listener - Receives each new file extension as it is found, and can cancel the sniffing.
+     * @throws CancellationException - If the listener cancelled the sniffing.
+     */
+    private void addSniffedFiles(ExtensionIndex index, List<ScannedFile> files, ScanListener listener) {
+        String[] detectedTypes = this.contentSniffer.detectAll(files, this.scanParallelism, listener);
+        for (int i = 0; i < detectedTypes.length; i++) {
+            ScannedFile file = files.get(i);
+            String extension = detectedTypes[i].isEmpty() ? getFileExtension(new File(file.getName()).getName()) : detectedTypes[i];
+            if (!extension.isEmpty() && index.add(file.getName(), extension, file.getTotalBytes(), file.getLastModified())) {
+                listener.onFound(new ScannedFile(ExtensionIndex.normalize(extension), ScannedFile.Type.EXTENSION));
             }
         }
+    }
+
+    /**
+     * Returns the type a file is sorted by: the type detected from its content if content sniffing is enabled and
+     * applies to the file, otherwise its file extension.
+     * @param file - A file as returned by streamFiles(), by full path and with its size and modification time.
+     * @return - The file extension to sort the file by, or an empty string if it has none.
+     */
+    public String getFileType(ScannedFile file) {
+        String extension = getFileExtension(new File(file.getName()).getName());
+        if (this.contentSniffer == null || !this.contentSniffer.shouldSniff(extension)) {
+            return extension;
+        }
+        String detectedType = this.contentSniffer.detect(Path.of(file.getName()), file.getTotalBytes(), file.getLastModified());
+        return detectedType.isEmpty() ? extension : detectedType;
+    }
+
+    /**
+     * Returns the file extensions in the extension index, as left by the last scan and any sorts since.
+     * Nothing is read from disk.
+     * @return - An array of ScannedFile objects representing file extensions, with their file counts and total sizes.
+     */
+    public ScannedFile[] getIndexedFileExtensions() {
+        ArrayList<ScannedFile> foundFileExtensions = new ArrayList<>();
+        for (ExtensionIndex.Entry entry : this.extensionIndex.entries()) {
+            foundFileExtensions.add(new ScannedFile(entry.getExtension(), ScannedFile.Type.EXTENSION, entry.getFileCount(), entry.getTotalBytes()));
+        }
 
         return foundFileExtensions.toArray(new ScannedFile[0]);
     }
@@ -236,50 +861,125 @@ public class FileHandler {
     /* =======================
      Helpers below
      ======================= */
+    private static Stream<ScannedFile> stream(DirectoryIterator iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::finish);
+    }
+
+    private Path getMoveJournalFile() {
+        return MoveJournal.fileFor(this.moveJournalDirectory, new File(this.userExportFolderPath).getAbsolutePath());
+    }
+
+    private Path requireMoveJournalFile() throws FileNotFoundException {
+        Path journalFile = getMoveJournalFile();
+        if (!Files.exists(journalFile)) {
+            throw new FileNotFoundException("No journaled sort into " + this.userExportFolderPath);
+        }
+        return journalFile;
+    }
+
+    /**
+     * Writes the plan of a sort to the move journal, if journaling is enabled.
+     * @param moves - The moves about to run.
+     * @return - The journal, or null if journaling is disabled or the plan could not be written.
+     */
+    private MoveJournal startMoveJournal(List<MoveEngine.Move> moves) {
+        if (!this.moveJournalEnabled) {
+            return null;
+        }
+        try {
+            return MoveJournal.start(getMoveJournalFile(), moves);
+        } catch (IOException exception) {
+            System.out.println("Error writing move journal, moving without it: " + exception);
+            return null;
+        }
+    }
+
+    private void closeMoveJournal(MoveJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException exception) {
+            System.out.println("Error writing move journal: " + exception);
+        }
+    }
+
+    /**
+     * Checks whether a move already happened: its source is gone and its destination exists.
+     * @param move - The move to check.
+     * @return - True if the file was moved.
+     */
+    private static boolean isMoved(MoveEngine.Move move) {
+        return !Files.exists(move.getSource(), LinkOption.NOFOLLOW_LINKS) && Files.exists(move.getDestination(), LinkOption.NOFOLLOW_LINKS);
+    }
+
     /**
-     * Retrieves a list of folders to scan for file extensions.
-     * @param chosenFolders - An array of folders to scan.
-     * @return - An array of folder paths to scan.
-     */
-    private ArrayList<String> getFoldersToScan(String[] chosenFolders) {
-        // Add to global folders (for extension scanning)
-        ArrayList<String> folders = new ArrayList<>(Arrays.asList(chosenFolders));
-
-        // Store folders for processing
-        ArrayList<String> foldersToScan = new ArrayList<>(folders);
-        if (chosenFolders.length == 0) {
-            // Used for subfolder scanning
-            foldersToScan.add(this.absolutePath);
-        } else {
-            folders.replaceAll(s -> this.absolutePath + File.separator + s);
-            foldersToScan.replaceAll(s -> this.absolutePath + File.separator + s);
-        }
-
-        while (!foldersToScan.isEmpty()) {
-            String scanningFolder = foldersToScan.remove(0);
-            // Scan folder
-            File folder = new File(scanningFolder);
-            if (folder.listFiles() == null) {
-                continue; // Skip non-existent directories
+     * Creates a folder unless it already exists, along with any missing parent folders.
+     * @param folder - The folder to create.
+     * @throws IOException - If the folder cannot be created.
+     */
+    private void createFolder(Path folder) throws IOException {
+        FolderCreatedEvent event = new FolderCreatedEvent();
+        event.begin();
+
+        // Try to create the folder straight away rather than probing for it first; it usually exists or only it is missing
+        boolean exists = false;
+        try {
+            Files.createDirectory(folder);
+        } catch (FileAlreadyExistsException exception) {
+            if (!Files.isDirectory(folder)) {
+                throw exception;
             }
+            exists = true;
+        } catch (NoSuchFileException exception) {
+            Files.createDirectories(folder);
+        }
 
-            // List files/folders in folder
-            for (File item : Objects.requireNonNull(folder.listFiles())) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = folder.toString();
+            event.created = !exists;
+            event.commit();
+        }
+    }
 
-                // Directory check
-                boolean isDirectory = item.isDirectory();
-                if (isDirectory) {
-                    // Add to global folders (for extension scanning)
-                    String itemPath = item.getAbsolutePath();
-                    folders.add(itemPath);
+    /**
+     * Walks the given folders, pruned by the scan options, reusing and then updating the scan index when it is enabled.
+     * @param roots - The folders to walk.
+     * @param listener - Receives progress, and can cancel the walk.
+     * @return - The folders, files and file extensions found.
+     */
+    private DirectoryWalker.WalkResult walk(List<File> roots, ScanListener listener) {
+        ScanIndex index = this.scanIndexEnabled ? getScanIndex() : null;
+        DirectoryWalker.WalkResult walkResult = new DirectoryWalker(this.scanParallelism, listener, index, this.scanOptions)
+                .walk(Path.of(this.absolutePath), roots);
+        if (walkResult.budgetSpent) {
+            listener.onScanTruncated(this.scanOptions.getMaxEntries());
+        }
 
-                    // Add to additional folders to scan in while loop
-                    foldersToScan.add(itemPath);
-                }
+        if (index != null) {
+            try {
+                index.save();
+            } catch (IOException exception) {
+                System.out.println("Error saving scan index: " + exception);
             }
         }
+        return walkResult;
+    }
 
-        return new ArrayList<>(folders);
+    /**
+     * Returns the scan index of the current scan root, loading it on first use.
+     * @return - The scan index.
+     */
+    private ScanIndex getScanIndex() {
+        String root = new File(this.absolutePath).getAbsolutePath();
+        if (this.scanIndex == null || !this.scanIndexRoot.equals(root)) {
+            this.scanIndex = ScanIndex.load(this.scanIndexDirectory, root);
+            this.scanIndexRoot = root;
+        }
+        return this.scanIndex;
     }
 
     /**
@@ -287,12 +987,7 @@ public class FileHandler {
      * @param fileName - The name of the file.
      * @return - The file extension.
      */
-    private String getFileExtension(String fileName) {
-        int dotIndex = fileName.lastIndexOf('.');
-        if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
-            return fileName.substring(dotIndex);
-        } else {
-            return ""; // No extension found; return empty
-        }
+    public static String getFileExtension(String fileName) {
+        return DirectoryWalker.getFileExtension(fileName);
     }
 }
@@ -0,0 +1,33 @@
+package org.example.components;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a single file move, whatever its outcome.
+ */
+@Name("org.example.filesorter.FileMoved")
+@Label("File Moved")
+@Category({"File Sorter", "Sort"})
+@StackTrace(false)
+class FileMovedEvent extends Event {
+    @Label("Source")
+    String source;
+
+    @Label("Destination")
+    String destination;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Cross Device")
+    boolean crossDevice;
+
+    @Label("Status")
+    String status;
+}
@@ -0,0 +1,22 @@
+package org.example.components;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for checking and, if needed, creating an output folder.
+ */
+@Name("org.example.filesorter.FolderCreated")
+@Label("Folder Created")
+@Category({"File Sorter", "Sort"})
+@StackTrace(false)
+class FolderCreatedEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Created")
+    boolean created;
+}
@@ -0,0 +1,388 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a folder tree and continuously sorts newly arriving files into the Output/&lt;ext&gt; files structure.
+ * The extension index is kept current from create, modify and delete events. New files are collected over a short
+ * batch window and only moved once their size and modification time have stopped changing, so files that are
+ * still being written are left alone. If the event queue overflows, only the affected folder is rescanned.
+ */
+public class FolderWatcher implements AutoCloseable {
+    private static final long DEFAULT_BATCH_WINDOW_MILLIS = 2000;
+
+    private final Path watchFolder;
+    private final Path outputFolder;
+    private final Set<String> fileExtensions = new HashSet<>();
+    private final int moveParallelism;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedFolders = new HashMap<>();
+    private final Map<Path, PendingFile> pendingFiles = new LinkedHashMap<>();
+    private final ExtensionIndex extensionIndex = new ExtensionIndex();
+    private long batchWindowMillis = DEFAULT_BATCH_WINDOW_MILLIS;
+    private SortRules sortRules = SortRules.NONE;
+    private CollisionResolver.Policy collisionPolicy = CollisionResolver.Policy.RENAME;
+
+    /**
+     * A new or changed file waiting for its size and modification time to settle.
+     */
+    private static class PendingFile {
+        private long size;
+        private long modifiedTime;
+        private long lastChangeMillis;
+
+        private PendingFile(long size, long modifiedTime, long lastChangeMillis) {
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.lastChangeMillis = lastChangeMillis;
+        }
+    }
+
+    /**
+     * Constructor for FolderWatcher class. Registers the folder tree and indexes the files already in it.
+     * @param watchFolder - The folder to watch, including its subfolders.
+     * @param exportFolder - The folder in which the Output folder structure is created.
+     * @param fileExtensions - The file extensions to sort; an empty array sorts every extension.
+     * @param moveParallelism - The number of files moved at the same time.
+     * @throws IOException - If the folder tree cannot be registered.
+     */
+    public FolderWatcher(Path watchFolder, Path exportFolder, String[] fileExtensions, int moveParallelism) throws IOException {
+        this.watchFolder = watchFolder.toAbsolutePath();
+        this.outputFolder = exportFolder.toAbsolutePath().resolve("Output");
+        this.moveParallelism = moveParallelism;
+        for (String fileExtension : fileExtensions) {
+            this.fileExtensions.add(ExtensionIndex.normalize(fileExtension));
+        }
+
+        this.watchService = this.watchFolder.getFileSystem().newWatchService();
+        registerTree(this.watchFolder, false);
+    }
+
+    /**
+     * Sets how long new files are collected before they are sorted, which is also how long a file
+     * must stay unchanged before it is considered completely written.
+     * @param batchWindowMillis - The batch window in milliseconds.
+     */
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    /**
+     * Sets the rules deciding which folder within Output each file is sorted into.
+     * @param sortRules - The compiled rules.
+     */
+    public void setSortRules(SortRules sortRules) {
+        this.sortRules = sortRules;
+    }
+
+    /**
+     * Sets what happens to files whose name is already taken at their destination.
+     * @param collisionPolicy - The policy; RENAME by default.
+     */
+    public void setCollisionPolicy(CollisionResolver.Policy collisionPolicy) {
+        this.collisionPolicy = collisionPolicy;
+    }
+
+    /**
+     * Returns the index of the files currently in the watched tree.
+     * Only safe to read from the thread running the watcher, or after it stopped.
+     * @return - The extension index.
+     */
+    public ExtensionIndex getExtensionIndex() {
+        return this.extensionIndex;
+    }
+
+    /**
+     * Returns the files that are waiting to settle before they are sorted.
+     * @return - The pending files.
+     */
+    public List<Path> getPendingFiles() {
+        return new ArrayList<>(this.pendingFiles.keySet());
+    }
+
+    /**
+     * Watches and sorts until the listener is cancelled or the watcher is closed.
+     * @param listener - Receives a count for every sorted file, and can stop the watcher.
+     */
+    public void run(ScanListener listener) {
+        long nextBatchMillis = System.currentTimeMillis() + this.batchWindowMillis;
+
+        while (!listener.isCancelled()) {
+            WatchKey key;
+            try {
+                key = this.watchService.poll(Math.max(1, nextBatchMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            }
+
+            if (key != null) {
+                handleEvents(key);
+            }
+
+            if (System.currentTimeMillis() >= nextBatchMillis) {
+                sortSettledFiles(listener);
+                nextBatchMillis = System.currentTimeMillis() + this.batchWindowMillis;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+
+    /**
+     * Applies the events of one watched folder to the index and the pending files.
+     * @param key - The signalled watch key.
+     */
+    private void handleEvents(WatchKey key) {
+        Path folder = this.watchedFolders.get(key);
+        if (folder == null) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost; rescan only this folder
+                rescanFolder(folder);
+                continue;
+            }
+
+            Path path = folder.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                this.pendingFiles.remove(path);
+                String extension = DirectoryWalker.getFileExtension(path.getFileName().toString());
+                if (!extension.isEmpty()) {
+                    this.extensionIndex.remove(path.toString(), extension);
+                }
+            } else if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    registerTree(path, true);
+                }
+            } else {
+                fileChanged(path);
+            }
+        }
+
+        if (!key.reset()) {
+            this.watchedFolders.remove(key);
+        }
+    }
+
+    /**
+     * Registers a folder and its subfolders with the watch service and indexes the files in them.
+     * The Output folder is never watched, so sorted files are not picked up again.
+     * @param root - The folder to register.
+     * @param queueFiles - Whether the files found should be sorted, e.g. for a newly created folder.
+     */
+    private void registerTree(Path root, boolean queueFiles) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path folder, BasicFileAttributes attributes) throws IOException {
+                    if (folder.equals(outputFolder)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    WatchKey key = folder.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedFolders.put(key, folder);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        if (queueFiles) {
+                            fileChanged(file);
+                        } else {
+                            indexFile(file, attributes);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            System.out.println("Error watching folder " + root + ": " + exception);
+        }
+    }
+
+    /**
+     * Picks up the files of a folder whose events were lost, without rescanning the rest of the tree.
+     * @param folder - The folder to rescan.
+     */
+    private void rescanFolder(Path folder) {
+        ScanIndex.DirectoryRecord entries = DirectoryWalker.listDirectory(folder, 0, 0, null);
+        if (entries == null) {
+            return;
+        }
+
+        for (int i = 0; i < entries.names.length; i++) {
+            Path path = folder.resolve(entries.names[i]);
+            if (entries.isFile(i)) {
+                fileChanged(path);
+            } else if (!this.watchedFolders.containsValue(path)) {
+                registerTree(path, true);
+            }
+        }
+    }
+
+    /**
+     * Records a created or modified file in the index and restarts its settle time.
+     * @param file - The changed file.
+     */
+    private void fileChanged(Path file) {
+        String extension = DirectoryWalker.getFileExtension(file.getFileName().toString());
+        if (extension.isEmpty() || (!this.fileExtensions.isEmpty() && !this.fileExtensions.contains(ExtensionIndex.normalize(extension)))) {
+            return; // Not sorted
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException exception) {
+            return; // Already gone
+        }
+
+        indexFile(file, attributes);
+        PendingFile pendingFile = this.pendingFiles.get(file);
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        if (pendingFile == null) {
+            this.pendingFiles.put(file, new PendingFile(attributes.size(), modifiedTime, System.currentTimeMillis()));
+        } else if (pendingFile.size != attributes.size() || pendingFile.modifiedTime != modifiedTime) {
+            pendingFile.size = attributes.size();
+            pendingFile.modifiedTime = modifiedTime;
+            pendingFile.lastChangeMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Adds a file to the index, replacing its previous size if it was indexed before.
+     * @param file - The file to index.
+     * @param attributes - The current attributes of the file.
+     */
+    private void indexFile(Path file, BasicFileAttributes attributes) {
+        String extension = DirectoryWalker.getFileExtension(file.getFileName().toString());
+        if (extension.isEmpty()) {
+            return;
+        }
+        this.extensionIndex.remove(file.toString(), extension);
+        this.extensionIndex.add(file.toString(), extension, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Moves every pending file that has not changed for a full batch window.
+     * @param listener - Receives a count for every sorted file.
+     */
+    private void sortSettledFiles(ScanListener listener) {
+        long now = System.currentTimeMillis();
+        ArrayList<MoveEngine.Move> moves = new ArrayList<>();
+        // Created again for every batch, in case Output or one of its folders was removed while watching
+        HashSet<Path> createdFolders = new HashSet<>();
+
+        Iterator<Map.Entry<Path, PendingFile>> iterator = this.pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path file = entry.getKey();
+            PendingFile pendingFile = entry.getValue();
+
+            // Check the file once more, in case a write was not reported yet
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException exception) {
+                iterator.remove();
+                continue;
+            }
+            if (attributes.size() != pendingFile.size || attributes.lastModifiedTime().toMillis() != pendingFile.modifiedTime) {
+                pendingFile.size = attributes.size();
+                pendingFile.modifiedTime = attributes.lastModifiedTime().toMillis();
+                pendingFile.lastChangeMillis = now;
+                continue;
+            }
+            if (now - pendingFile.lastChangeMillis < this.batchWindowMillis) {
+                continue; // Possibly still being written
+            }
+
+            iterator.remove();
+            String fileName = file.getFileName().toString();
+            String extension = ExtensionIndex.normalize(DirectoryWalker.getFileExtension(fileName));
+            try {
+                Path folder = createOutputFolder(this.sortRules.folderFor(fileName, extension, pendingFile.size, pendingFile.modifiedTime), createdFolders);
+                moves.add(new MoveEngine.Move(file, folder.resolve(file.getFileName()), pendingFile.size));
+            } catch (IOException exception) {
+                System.out.println("Error creating directory: " + exception);
+            }
+        }
+
+        if (moves.isEmpty()) {
+            return;
+        }
+
+        // Files with a name already in Output, e.g. a second download of report.pdf, are settled before moving
+        MovePlan plan = new CollisionResolver(this.collisionPolicy).resolve(new MovePlan(moves));
+        for (MoveResult.Outcome skipped : plan.getSkipped()) {
+            System.out.println("Skipped " + skipped.getSource() + ": " + skipped.getReason());
+        }
+        if (plan.isEmpty()) {
+            return;
+        }
+
+        MoveResult result = new MoveEngine(this.moveParallelism).move(plan.getMoves(), listener);
+        for (MoveResult.Outcome outcome : result.getOutcomes()) {
+            if (outcome.getStatus() == MoveResult.Status.FAILED) {
+                System.out.println("Error moving " + outcome.getSource() + ": " + outcome.getReason());
+            } else {
+                String extension = DirectoryWalker.getFileExtension(outcome.getSource().getFileName().toString());
+                this.extensionIndex.remove(outcome.getSource().toString(), extension);
+            }
+        }
+        System.out.println(result);
+    }
+
+    /**
+     * Creates a folder within Output, once per batch.
+     * @param folder - The folder, relative to Output, as chosen by the sort rules.
+     * @param createdFolders - The folders created for the current batch so far.
+     * @return - The created folder.
+     * @throws IOException - If the folder cannot be created.
+     */
+    private Path createOutputFolder(String folder, Set<Path> createdFolders) throws IOException {
+        Path outputFolder = this.outputFolder.resolve(folder);
+        if (createdFolders.add(outputFolder)) {
+            try {
+                Files.createDirectories(outputFolder);
+            } catch (IOException exception) {
+                createdFolders.remove(outputFolder);
+                throw exception;
+            }
+        }
+        return outputFolder;
+    }
+}
@@ -5,100 +5,201 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Gui {
     private final FileHandler userChosenFolder = new FileHandler("");
+    private final ArrayList<AbstractButton> jobButtons = new ArrayList<>();
+    private JLabel progressLabel;
+    private JButton cancelButton;
+    private ScanJob<?> currentJob;
 
     /**
      * This method creates the GUI for the application.
      */
     public Gui() {
+        // Rescans only list folders that changed since the last scan
+        userChosenFolder.setScanIndexEnabled(true);
+        // Sorts can be undone, and resumed from the command line after a crash
+        userChosenFolder.setMoveJournalEnabled(true);
+        // Sort by the user's rules, if they wrote any
+        loadSortRules();
+        // Publish metrics over JMX without delaying the first frame
+        CompletableFuture.runAsync(Metrics::register);
         createGui();
     }
 
     /**
-     * This method handles the click event for the "Scan for file extensions" button.
-     *
-     * @param leftDynamicCheckboxPanel The JPanel object containing the checkboxes for the files and folders.
-     * @param rightDynamicCheckboxPanel The JPanel object containing the checkboxes for the found file extensions.
+     * Loads the sort rules from SortRules.defaultFile() when it exists, otherwise files are sorted by extension.
      */
-    private void handleFindFileExtensionsClick(JPanel leftDynamicCheckboxPanel, JPanel rightDynamicCheckboxPanel) {
-        // Selected check
-        Component[] checkBoxesLeft = leftDynamicCheckboxPanel.getComponents();
-        ArrayList<String> checkedFolders = new ArrayList<>();
-        ArrayList<String> checkedFiles = new ArrayList<>();
-
-        for (Component checkbox : checkBoxesLeft) {
-            if (checkbox instanceof JCheckBox) {
-
-                // File path for checks
-                String checkBoxName = ((JCheckBox) checkbox).getText();
-                String checkBoxPath = userChosenFolder.getAbsolutePath() + File.separator + checkBoxName;
-                File checkboxFile = new File(checkBoxPath);
-                if (((JCheckBox) checkbox).isSelected() && checkboxFile.isDirectory()) {
-                    // Checked folder
-                    checkedFolders.add(checkboxFile.getName());
-                } else if (((JCheckBox) checkbox).isSelected() && checkboxFile.isFile()) {
-                    // Checked file
-                    checkedFiles.add(checkboxFile.getName());
-                }
-            }
+    private void loadSortRules() {
+        Path rulesFile = SortRules.defaultFile();
+        if (!Files.isRegularFile(rulesFile)) {
+            return;
+        }
+        try {
+            userChosenFolder.setSortRules(SortRules.load(rulesFile));
+        } catch (IOException | IllegalArgumentException exception) {
+            System.out.println("Error loading sort rules: " + exception);
         }
+    }
 
-        String[] chosenFolders = checkedFolders.toArray(new String[0]);
-        String[] chosenFiles = checkedFiles.toArray(new String[0]);
+    /**
+     * This method handles the click event for the "Scan for file extensions" button.
+     *
+     * @param leftCheckListModel The model containing the checkable files and folders.
+     * @param rightCheckListModel The model containing the checkable found file extensions.
+     */
+    private void handleFindFileExtensionsClick(CheckListModel leftCheckListModel, CheckListModel rightCheckListModel) {
+        // Selected check; the entries carry the type and size read by the folder listing
+        ScannedFile[] chosenEntries = leftCheckListModel.getSelectedItems().toArray(new ScannedFile[0]);
 
-        if (chosenFolders.length == 0 && chosenFiles.length == 0) {
-            rightDynamicCheckboxPanel.removeAll();
-            refreshComponent(rightDynamicCheckboxPanel);
+        rightCheckListModel.clear();
+        if (chosenEntries.length == 0) {
             return;
         }
 
-        // Create checkboxes for found items in chosen path
-        ScannedFile[] checkBoxes = userChosenFolder.getFileExtensions(chosenFolders, chosenFiles);
-        generateCheckBoxes(rightDynamicCheckboxPanel, checkBoxes);
+        // Create checkboxes for found items in chosen path, replacing them with totals once the scan is done
+        HashSet<String> shownExtensions = new HashSet<>();
+        runJob(new ScanJob<>(
+                "Scanning for file extensions",
+                listener -> userChosenFolder.getFileExtensions(chosenEntries, listener),
+                progressLabel,
+                batch -> {
+                    ArrayList<ScannedFile> newExtensions = new ArrayList<>();
+                    for (ScannedFile found : batch) {
+                        if (found.getType() == ScannedFile.Type.EXTENSION && shownExtensions.add(found.getName())) {
+                            newExtensions.add(found);
+                        }
+                    }
+                    rightCheckListModel.addAll(newExtensions);
+                },
+                checkBoxes -> rightCheckListModel.setItems(Arrays.asList(checkBoxes))
+        ));
     }
 
     /**
      * This method handles the click event for the "Show Subfolders" button.
      *
-     * @param leftDynamicFolderPanel The JPanel object to display the found folders.
+     * @param folderListModel The list model to display the found folders in.
+     * @param foundFoldersLabel The label showing the state of the subfolder scan.
      */
-    private void handleShowSubfoldersClick(JPanel leftDynamicFolderPanel) {
+    private void handleShowSubfoldersClick(DefaultListModel<String> folderListModel, JLabel foundFoldersLabel) {
         if (userChosenFolder.getAbsolutePath() == null) {
             return;
         }
         File file = new File(userChosenFolder.getAbsolutePath());
 
-        // Clear existing labels
-        leftDynamicFolderPanel.removeAll();
+        // Clear existing folders
+        folderListModel.clear();
 
         if (!file.exists()) {
-            JLabel label = createLabel("No folders to populate");
-            leftDynamicFolderPanel.add(label);
-            refreshComponent(leftDynamicFolderPanel);
+            foundFoldersLabel.setText("No folders to populate");
             return;
         }
 
         // Load folders
-        ScannedFile[] folders = userChosenFolder.getSubfolders();
+        foundFoldersLabel.setText("Scanning for subfolders...");
+        runJob(new ScanJob<>(
+                "Scanning for subfolders",
+                // Folders go to the list as they are found, without collecting the whole tree first
+                listener -> userChosenFolder.streamSubfolders(listener).mapToLong(folder -> {
+                    listener.onFound(folder);
+                    return 1;
+                }).sum(),
+                progressLabel,
+                batch -> {
+                    ArrayList<String> folderNames = new ArrayList<>();
+                    for (ScannedFile folder : batch) {
+                        if (folder.getType() == ScannedFile.Type.FOLDER) {
+                            folderNames.add(folder.getName());
+                        }
+                    }
+                    folderListModel.addAll(folderNames);
+                },
+                folderCount -> {
+                    if (folderCount == 0) {
+                        foundFoldersLabel.setText("No folders to populate");
+                    } else {
+                        foundFoldersLabel.setText(String.format("%,d subfolders found", folderCount));
+                    }
+                }
+        ));
+    }
 
-        if (folders.length > 0) {
-            for (ScannedFile folder : folders) {
-                JLabel label = createLabel(folder.getName());
-                leftDynamicFolderPanel.add(label);
+    /**
+     * Runs a background job, disabling the other actions until it finishes or is cancelled.
+     *
+     * @param job The job to run.
+     */
+    private void runJob(ScanJob<?> job) {
+        runJob(job, () -> {});
+    }
+
+    /**
+     * Runs a background job, disabling the other actions until its task has returned, even after it is cancelled.
+     *
+     * @param job The job to run.
+     * @param onFinished Runs on the event dispatch thread once the task has returned, whatever its outcome.
+     */
+    private void runJob(ScanJob<?> job, Runnable onFinished) {
+        currentJob = job;
+        setBusy(true);
+        // A cancelled job is done straight away, but its task still finishes the moves in flight and closes the journal
+        job.setOnFinished(() -> {
+            onFinished.run();
+            // A job may start its successor when done, which then owns the busy state
+            if (currentJob == job) {
+                setBusy(false);
             }
-        } else {
-            JLabel label = createLabel("No folders to populate");
-            leftDynamicFolderPanel.add(label);
+        });
+        job.start();
+    }
+
+    /**
+     * Enables or disables the actions that start a background job.
+     *
+     * @param busy Whether a job is running.
+     */
+    private void setBusy(boolean busy) {
+        for (AbstractButton button : jobButtons) {
+            button.setEnabled(!busy);
         }
+        cancelButton.setEnabled(busy);
+    }
 
-        // Refresh the leftDynamicFolderPanel to update the UI
-        refreshComponent(leftDynamicFolderPanel);
+    /**
+     * Shows the files that could not be moved, if any.
+     *
+     * @param frame The parent frame of the dialog.
+     * @param result The outcome of the sort.
+     */
+    private void showMoveFailures(JFrame frame, MoveResult result) {
+        List<MoveResult.Outcome> failures = result.getOutcomes(MoveResult.Status.FAILED);
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder(String.format("%,d of %,d files could not be moved:%n", failures.size(), result.getOutcomes().size()));
+        int shown = Math.min(failures.size(), 10);
+        for (int i = 0; i < shown; i++) {
+            MoveResult.Outcome failure = failures.get(i);
+            message.append(failure.getSource().getFileName()).append(": ").append(failure.getReason()).append(System.lineSeparator());
+        }
+        if (failures.size() > shown) {
+            message.append(String.format("...and %,d more", failures.size() - shown));
+        }
+        JOptionPane.showMessageDialog(frame, message.toString(), "Sort Files", JOptionPane.WARNING_MESSAGE);
     }
 
     /**
@@ -118,29 +219,7 @@ public class Gui {
      * @return - The font with the specified style.
      */
     private Font getFont(String fontWeight) {
-        Font font = null;
-
-        try {
-            InputStream inputStream;
-            switch (fontWeight) {
-                case "bold" -> {
-                    inputStream = getClass().getResourceAsStream("/Fonts/Roboto-Bold.ttf");
-                    font = Font.createFont(Font.TRUETYPE_FONT, Objects.requireNonNull(inputStream)).deriveFont(Font.PLAIN, 16);
-                }
-                case "regular" -> {
-                    inputStream = getClass().getResourceAsStream("/Fonts/Roboto-Regular.ttf");
-                    font = Font.createFont(Font.TRUETYPE_FONT, Objects.requireNonNull(inputStream)).deriveFont(Font.PLAIN, 14);
-                }
-                case "light" -> {
-                    inputStream = getClass().getResourceAsStream("/Fonts/Roboto-Light.ttf");
-                    font = Font.createFont(Font.TRUETYPE_FONT, Objects.requireNonNull(inputStream)).deriveFont(Font.PLAIN, 12);
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Error with getFont: " + e);
-        }
-
-        return font;
+        return Style.getFont(fontWeight);
     }
 
     /**
@@ -150,15 +229,7 @@ public class Gui {
      * @return - The color with the specified name.
      */
     private Color getColor(String color) {
-        return switch (color) {
-            case "white" -> new Color(255, 255, 255);
-            case "blue" -> new Color(82, 173, 200);
-            case "green" -> new Color(76, 175, 80);
-            default -> {
-                System.out.println("Could not find color. Returning default.");
-                yield new Color(255);
-            }
-        };
+        return Style.getColor(color);
     }
 
     /**
@@ -243,23 +314,96 @@ public class Gui {
     }
 
     /**
-     * Generates check boxes for the given array of scanned files and adds them to the given panel.
+     * Creates a virtualized list of checkboxes backed by the given model.
+     * A single checkbox renders every visible row; clicking a row or pressing space toggles it in the model.
+     *
+     * @param model The model holding the items and their selection.
+     * @return - The created list.
+     */
+    private JList<ScannedFile> createCheckList(CheckListModel model) {
+        JList<ScannedFile> list = new JList<>(model);
+        list.setBackground(getColor("blue"));
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Fixed height so rows are never measured one by one
+        list.setFixedCellHeight(24);
+
+        JCheckBox renderer = createCheckBox("");
+        list.setCellRenderer((jList, value, index, isSelected, cellHasFocus) -> {
+            renderer.setText(formatCheckBoxText(value));
+            renderer.setSelected(model.isSelected(index));
+            return renderer;
+        });
+
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0 && list.getCellBounds(index, index).contains(e.getPoint())) {
+                    model.toggle(index);
+                }
+            }
+        });
+        list.getInputMap().put(KeyStroke.getKeyStroke("SPACE"), "toggleChecked");
+        list.getActionMap().put("toggleChecked", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int index = list.getSelectedIndex();
+                if (index >= 0) {
+                    model.toggle(index);
+                }
+            }
+        });
+
+        return list;
+    }
+
+    /**
+     * Creates a virtualized list of labels backed by the given model.
      *
-     * @param panel The panel to add the checkboxes to.
-     * @param checkBoxes The array of scanned files to generate check boxes for.
+     * @param model The model holding the labels.
+     * @return - The created list.
      */
-    private void generateCheckBoxes(JPanel panel, ScannedFile[] checkBoxes) {
-        // clear existing checkboxes
-        panel.removeAll();
-
-        // generate checkboxes
-        for (ScannedFile file : checkBoxes) {
-            JCheckBox checkbox = createCheckBox(file.getName());
-            panel.add(checkbox);
+    private JList<String> createLabelList(DefaultListModel<String> model) {
+        JList<String> list = new JList<>(model);
+        list.setBackground(getColor("blue"));
+        list.setForeground(getColor("white"));
+        list.setFont(getFont("light"));
+        list.setFixedCellHeight(20);
+        return list;
+    }
+
+    /**
+     * Returns the text shown next to a checkbox.
+     * File extensions with known totals show them, e.g. ".pdf (12,431 files, 3.2 GB)".
+     *
+     * @param file The scanned file to describe.
+     * @return - The checkbox text.
+     */
+    private String formatCheckBoxText(ScannedFile file) {
+        if (file.getType() == ScannedFile.Type.EXTENSION && file.getFileCount() > 0) {
+            return String.format("%s (%,d files, %s)", file.getName(), file.getFileCount(), formatBytes(file.getTotalBytes()));
         }
+        return file.getName();
+    }
 
-        // update display
-        refreshComponent(panel);
+    /**
+     * Formats a byte count for display, e.g. "3.2 GB".
+     *
+     * @param bytes The number of bytes.
+     * @return - The formatted size.
+     */
+    private String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = {"KB", "MB", "GB", "TB", "PB", "EB"};
+        double size = bytes;
+        int unit = -1;
+        while (size >= 1024 && unit < units.length - 1) {
+            size /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", size, units[unit]);
     }
 
     /**
@@ -301,7 +445,8 @@ public class Gui {
         JLabel chosenSaveFolderLabel = createLabel("FolderXYZ (default)");
         JButton chooseSaveFolderButton = createButton("Choose Save/Output Folder");
         // Left - Section 4
-        JPanel leftDynamicCheckboxPanel = new JPanel();
+        CheckListModel leftCheckListModel = new CheckListModel();
+        JList<ScannedFile> leftCheckList = createCheckList(leftCheckListModel);
         // Left - Section 5
         JPanel selectDeselectPanelLeft = new JPanel(themeFlowLeft);
         JButton selectAllButtonLeft = createButton("Select All");
@@ -309,14 +454,18 @@ public class Gui {
         // Left - Section 6
         JPanel leftDynamicFolderPanel = new JPanel();
         JLabel foundFoldersLabel = createLabel("Click on 'Show Subfolders' to begin scan");
+        DefaultListModel<String> folderListModel = new DefaultListModel<>();
+        JList<String> folderList = createLabelList(folderListModel);
 
         // Right
         JPanel rightPanel = new JPanel();
         // Right - Section 1
         JPanel rightPanelScan = new JPanel(themeFlowLeft);
         JButton findExtensionsButton = createButton("Scan for file extensions");
+        JCheckBox sniffContentCheckBox = createCheckBox("Detect type by content");
         // Right - Section 2
-        JPanel rightDynamicCheckboxPanel = new JPanel();
+        CheckListModel rightCheckListModel = new CheckListModel();
+        JList<ScannedFile> rightCheckList = createCheckList(rightCheckListModel);
         // Right - Section 3
         JPanel selectDeselectPanelRight = new JPanel(themeFlowLeft);
         JButton selectAllButtonRight = createButton("Select All");
@@ -324,6 +473,18 @@ public class Gui {
         // Right - Section 4
         JPanel sortFilesPanel = new JPanel(themeFlowLeft);
         JButton sortFilesButton = createButton("Sort Files");
+        JButton undoSortButton = createButton("Undo Last Sort");
+
+        // Bottom - progress
+        JPanel progressPanel = new JPanel(themeFlowLeft);
+        progressLabel = createLabel("Idle");
+        cancelButton = createButton("Cancel");
+        jobButtons.add(chooseFolderButton);
+        jobButtons.add(showFoundSubfoldersButton);
+        jobButtons.add(findExtensionsButton);
+        jobButtons.add(sniffContentCheckBox);
+        jobButtons.add(sortFilesButton);
+        jobButtons.add(undoSortButton);
 
 
         /* ===========================================
@@ -380,16 +541,23 @@ public class Gui {
                     chosenSaveFolderLabel.setText("<html>" + selectedFolder.getName() + " (default) </html>");
 
                     // Update found subfolders
-                    leftDynamicFolderPanel.removeAll();
-                    JLabel label = createLabel("Click on 'Show Subfolders' to begin scan");
-                    leftDynamicFolderPanel.add(label);
-                    refreshComponent(leftDynamicFolderPanel);
+                    folderListModel.clear();
+                    foundFoldersLabel.setText("Click on 'Show Subfolders' to begin scan");
 
                     // Create checkboxes for found items in chosen path
                     userChosenFolder.setAbsolutePath(selectedFolder.getAbsolutePath());
                     userChosenFolder.setUserExportFolderPath(selectedFolder.getAbsolutePath());
-                    ScannedFile[] checkBoxes = userChosenFolder.getFilesAndFolders();
-                    generateCheckBoxes(leftDynamicCheckboxPanel, checkBoxes);
+                    leftCheckListModel.clear();
+                    runJob(new ScanJob<>(
+                            "Scanning folder",
+                            listener -> userChosenFolder.streamFilesAndFolders(listener).mapToLong(entry -> {
+                                listener.onFound(entry);
+                                return 1;
+                            }).sum(),
+                            progressLabel,
+                            leftCheckListModel::addAll,
+                            entryCount -> {}
+                    ));
                 } else {
                     directoryLabel.setText("No folder selected");
                     chosenFolderLabel.setText("No folder selected");
@@ -400,7 +568,7 @@ public class Gui {
         showFoundSubfoldersButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                handleShowSubfoldersClick(leftDynamicFolderPanel);
+                handleShowSubfoldersClick(folderListModel, foundFoldersLabel);
             }
         });
 
@@ -455,10 +623,7 @@ public class Gui {
         /* ===========================================
          * Panel - left section 4 (dynamic checkbox)
          * ======================================== */
-        leftDynamicCheckboxPanel.setLayout(setBoxLayout(leftDynamicCheckboxPanel));
-        leftDynamicCheckboxPanel.setBackground(getColor("blue"));
-
-        leftPanel.add(leftDynamicCheckboxPanel);
+        leftPanel.add(createScrollPane(leftCheckList, new Dimension(200, 200)));
 
         /* ===========================================
          * Panel - left section 5 (select checkboxes)
@@ -469,24 +634,14 @@ public class Gui {
         selectAllButtonLeft.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                Component[] checkBoxes = leftDynamicCheckboxPanel.getComponents();
-                for (Component checkbox : checkBoxes) {
-                    if (checkbox instanceof JCheckBox) {
-                        ((JCheckBox) checkbox).setSelected(true);
-                    }
-                }
+                leftCheckListModel.selectAll();
             }
         });
 
         deselectAllButtonLeft.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                Component[] checkBoxes = leftDynamicCheckboxPanel.getComponents();
-                for (Component checkbox : checkBoxes) {
-                    if (checkbox instanceof JCheckBox) {
-                        ((JCheckBox) checkbox).setSelected(false);
-                    }
-                }
+                leftCheckListModel.deselectAll();
             }
         });
 
@@ -497,16 +652,17 @@ public class Gui {
         /* ===========================================
          * Panel - left section 6 (found folders)
          * ======================================== */
-        leftDynamicFolderPanel.setLayout(setBoxLayout(leftDynamicFolderPanel));
+        leftDynamicFolderPanel.setLayout(new BorderLayout());
         leftDynamicFolderPanel.setBackground(getColor("blue"));
         leftDynamicFolderPanel.setBorder(setTitledBorder("Found Subfolders"));
 
-        leftDynamicFolderPanel.add(foundFoldersLabel);
+        // Scroll the list itself, so only its visible rows are painted
+        JScrollPane scrollPane = createScrollPane(folderList, new Dimension(200, 300));
+        leftDynamicFolderPanel.add(foundFoldersLabel, BorderLayout.NORTH);
+        leftDynamicFolderPanel.add(scrollPane, BorderLayout.CENTER);
 
-        JScrollPane scrollPane = createScrollPane(leftDynamicFolderPanel, new Dimension(200, 300));
-
-        // Add JScrollPane to the frame
-        leftPanel.add(scrollPane);
+        // Add the found folders to the frame
+        leftPanel.add(leftDynamicFolderPanel);
 
         /* ===========================================
          * Panel - right half
@@ -530,20 +686,27 @@ public class Gui {
                     return;
                 }
 
-                handleFindFileExtensionsClick(leftDynamicCheckboxPanel, rightDynamicCheckboxPanel);
+                handleFindFileExtensionsClick(leftCheckListModel, rightCheckListModel);
+            }
+        });
+
+        // Off by default, since it reads the first bytes of every extensionless and .dat/.bin/.tmp file
+        sniffContentCheckBox.setToolTipText("Sort files without an extension, or with .dat, .bin or .tmp, by the type their content shows");
+        sniffContentCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                userChosenFolder.setContentSniffingEnabled(sniffContentCheckBox.isSelected());
             }
         });
 
         rightPanelScan.add(findExtensionsButton);
+        rightPanelScan.add(sniffContentCheckBox);
         rightPanel.add(rightPanelScan);
 
         /* ===========================================
          * Panel - right section 2 (dynamic checkbox)
          * ======================================== */
-        rightDynamicCheckboxPanel.setLayout(setBoxLayout(rightDynamicCheckboxPanel));
-        rightDynamicCheckboxPanel.setBackground(getColor("blue"));
-
-        rightPanel.add(rightDynamicCheckboxPanel);
+        rightPanel.add(createScrollPane(rightCheckList, new Dimension(200, 300)));
 
         /* ===========================================
          * Panel - right section 3 (select checkboxes)
@@ -554,24 +717,14 @@ public class Gui {
         selectAllButtonRight.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                Component[] checkBoxes = rightDynamicCheckboxPanel.getComponents();
-                for (Component checkbox : checkBoxes) {
-                    if (checkbox instanceof JCheckBox) {
-                        ((JCheckBox) checkbox).setSelected(true);
-                    }
-                }
+                rightCheckListModel.selectAll();
             }
         });
 
         deselectAllButtonRight.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                Component[] checkBoxes = rightDynamicCheckboxPanel.getComponents();
-                for (Component checkbox : checkBoxes) {
-                    if (checkbox instanceof JCheckBox) {
-                        ((JCheckBox) checkbox).setSelected(false);
-                    }
-                }
+                rightCheckListModel.deselectAll();
             }
         });
 
@@ -598,32 +751,75 @@ public class Gui {
                 }
 
                 // Get checked file extensions
-                Component[] checkBoxesRight = rightDynamicCheckboxPanel.getComponents();
                 ArrayList<String> checkedFileExtensions = new ArrayList<>();
-
-                for (Component checkbox : checkBoxesRight) {
-                    if (checkbox instanceof JCheckBox) {
-
-                        // Get checkbox file extension
-                        String checkBoxFileExtension = ((JCheckBox) checkbox).getText();
-                        if (((JCheckBox) checkbox).isSelected()) {
-                            // Add if checked
-                            checkedFileExtensions.add(checkBoxFileExtension);
-                        }
-                    }
+                for (ScannedFile extension : rightCheckListModel.getSelectedItems()) {
+                    checkedFileExtensions.add(extension.getName());
                 }
 
                 String[] fileExtensions = checkedFileExtensions.toArray(new String[0]);
-                userChosenFolder.createFolderStructure(fileExtensions);
+                runJob(new ScanJob<>(
+                        "Sorting files",
+                        listener -> userChosenFolder.createFolderStructure(fileExtensions, listener),
+                        progressLabel,
+                        batch -> {},
+                        result -> {
+                            System.out.println(result);
+                            showMoveFailures(frame, result);
+                        }
+                ), () -> {
+                    // The sort removed the moved files from the index, so the remaining extensions need no rescan; also
+                    // after a cancelled sort, whose files moved so far are gone too
+                    rightCheckListModel.setItems(Arrays.asList(userChosenFolder.getIndexedFileExtensions()));
+                });
+            }
+        });
+
+        undoSortButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (userChosenFolder.getUserExportFolderPath() == null) {
+                    return;
+                }
 
-                /* Get file extensions button click */
-                handleFindFileExtensionsClick(leftDynamicCheckboxPanel, rightDynamicCheckboxPanel);
+                runJob(new ScanJob<>(
+                        "Undoing last sort",
+                        listener -> userChosenFolder.undoMoves(listener),
+                        progressLabel,
+                        batch -> {},
+                        result -> {
+                            System.out.println(result);
+                            showMoveFailures(frame, result);
+
+                            /* Get file extensions button click */
+                            handleFindFileExtensionsClick(leftCheckListModel, rightCheckListModel);
+                        }
+                ));
             }
         });
 
         sortFilesPanel.add(sortFilesButton);
+        sortFilesPanel.add(undoSortButton);
         rightPanel.add(sortFilesPanel);
 
+        /* ===========================================
+         * Panel - bottom (progress of background jobs)
+         * ======================================== */
+        progressPanel.setBackground(getColor("blue"));
+        cancelButton.setEnabled(false);
+
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currentJob != null) {
+                    // The job polls for cancellation; interrupting it would close the channels of in-flight copies and the move journal
+                    currentJob.cancel(false);
+                }
+            }
+        });
+
+        progressPanel.add(cancelButton);
+        progressPanel.add(progressLabel);
+
         // Add the panels to JScrollPanes
         JScrollPane leftScrollPane = createScrollPane(leftPanel, themeDimension);
         JScrollPane rightScrollPane = createScrollPane(rightPanel, themeDimension);
@@ -632,10 +828,12 @@ public class Gui {
         mainPanel.add(leftScrollPane);
         mainPanel.add(rightScrollPane);
         frame.add(mainPanel);
+        frame.add(progressPanel, BorderLayout.SOUTH);
         frame.setSize(screenHeight, screenHeight / 2);
         frame.setLocationRelativeTo(null);
 
         // Make the frame visible
+        StartupTimer.attach(frame);
         frame.setVisible(true);
     }
 }
@@ -0,0 +1,181 @@
+package org.example.components;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters, gauges and latency histograms for scans and sorts.
+ * Every update is a LongAdder increment, so parallel scan and move threads never contend on them.
+ * Metrics are always collected; register() also publishes them over JMX, e.g. for jconsole.
+ */
+public class Metrics implements MetricsMXBean {
+    public static final String OBJECT_NAME = "org.example.filesorter:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+    private static boolean registered;
+
+    final LongAdder directoriesVisited = new LongAdder();
+    final LongAdder directoriesListed = new LongAdder();
+    final LongAdder foldersPruned = new LongAdder();
+    final LongAdder filesSeen = new LongAdder();
+    final LongAdder extensionsDiscovered = new LongAdder();
+    final LongAdder bytesMoved = new LongAdder();
+    final LongAdder movesSucceeded = new LongAdder();
+    final LongAdder movesSkipped = new LongAdder();
+    final LongAdder movesFailed = new LongAdder();
+    final LongAdder duplicatesFound = new LongAdder();
+    final LongAdder duplicateBytes = new LongAdder();
+    final LongAdder scansInFlight = new LongAdder();
+    final LongAdder sortsInFlight = new LongAdder();
+    final LongAdder movesInFlight = new LongAdder();
+    final LatencyHistogram scanLatency = new LatencyHistogram();
+    final LatencyHistogram directoryListingLatency = new LatencyHistogram();
+    final LatencyHistogram sortLatency = new LatencyHistogram();
+    final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the metrics of this process.
+     * @return - The shared Metrics instance.
+     */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server. Calling it again does nothing.
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException exception) {
+            System.out.println("Error registering metrics: " + exception);
+        }
+    }
+
+    /**
+     * Records a finished move.
+     * @param outcome - The outcome of the move.
+     * @param nanos - How long the move took.
+     */
+    void recordMove(MoveResult.Outcome outcome, long nanos) {
+        switch (outcome.getStatus()) {
+            case MOVED -> {
+                this.movesSucceeded.increment();
+                this.bytesMoved.add(outcome.getBytes());
+            }
+            case SKIPPED -> this.movesSkipped.increment();
+            case FAILED -> this.movesFailed.increment();
+        }
+        this.moveLatency.record(nanos);
+    }
+
+    @Override
+    public long getDirectoriesVisited() {
+        return directoriesVisited.sum();
+    }
+
+    @Override
+    public long getDirectoriesListed() {
+        return directoriesListed.sum();
+    }
+
+    @Override
+    public long getFoldersPruned() {
+        return foldersPruned.sum();
+    }
+
+    @Override
+    public long getFilesSeen() {
+        return filesSeen.sum();
+    }
+
+    @Override
+    public long getExtensionsDiscovered() {
+        return extensionsDiscovered.sum();
+    }
+
+    @Override
+    public long getBytesMoved() {
+        return bytesMoved.sum();
+    }
+
+    @Override
+    public long getMovesSucceeded() {
+        return movesSucceeded.sum();
+    }
+
+    @Override
+    public long getMovesSkipped() {
+        return movesSkipped.sum();
+    }
+
+    @Override
+    public long getMovesFailed() {
+        return movesFailed.sum();
+    }
+
+    @Override
+    public long getDuplicatesFound() {
+        return duplicatesFound.sum();
+    }
+
+    @Override
+    public long getDuplicateBytes() {
+        return duplicateBytes.sum();
+    }
+
+    @Override
+    public long getScansInFlight() {
+        return scansInFlight.sum();
+    }
+
+    @Override
+    public long getSortsInFlight() {
+        return sortsInFlight.sum();
+    }
+
+    @Override
+    public long getMovesInFlight() {
+        return movesInFlight.sum();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getScanLatency() {
+        return scanLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getDirectoryListingLatency() {
+        return directoryListingLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getSortLatency() {
+        return sortLatency.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getMoveLatency() {
+        return moveLatency.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[] {directoriesVisited, directoriesListed, foldersPruned, filesSeen, extensionsDiscovered,
+                bytesMoved, movesSucceeded, movesSkipped, movesFailed, duplicatesFound, duplicateBytes}) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : new LatencyHistogram[] {scanLatency, directoryListingLatency, sortLatency, moveLatency}) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.components;
+
+/**
+ * Scan and sort metrics, as exposed over JMX under Metrics.OBJECT_NAME.
+ */
+public interface MetricsMXBean {
+    long getDirectoriesVisited();
+
+    long getDirectoriesListed();
+
+    long getFoldersPruned();
+
+    long getFilesSeen();
+
+    long getExtensionsDiscovered();
+
+    long getBytesMoved();
+
+    long getMovesSucceeded();
+
+    long getMovesSkipped();
+
+    long getMovesFailed();
+
+    long getDuplicatesFound();
+
+    long getDuplicateBytes();
+
+    long getScansInFlight();
+
+    long getSortsInFlight();
+
+    long getMovesInFlight();
+
+    LatencyHistogram.Snapshot getScanLatency();
+
+    LatencyHistogram.Snapshot getDirectoryListingLatency();
+
+    LatencyHistogram.Snapshot getSortLatency();
+
+    LatencyHistogram.Snapshot getMoveLatency();
+
+    /**
+     * Sets every counter and histogram back to zero. Gauges of in-flight operations are kept.
+     */
+    void reset();
+}
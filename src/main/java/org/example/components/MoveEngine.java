@@ -0,0 +1,422 @@
+package org.example.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Moves files concurrently on a bounded pool of threads.
+ * Each move succeeds or fails on its own, so one locked or missing file never aborts the rest of the batch.
+ * Moves within one file store are a single rename. Moves to another file store are streamed with zero-copy
+ * channel transfers, optionally checksum-verified, and only then is the source deleted; large cross-device files
+ * run in their own lane so they never hold up the small ones. A move can instead hard-link its destination to an
+ * identical, already moved file, which moves no data at all.
+ */
+public class MoveEngine {
+    private static final int QUEUED_MOVES_PER_THREAD = 64;
+    private static final int CHECKSUM_BUFFER_SIZE = 1024 * 1024;
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final int parallelism;
+    private int largeFileParallelism;
+    private long largeFileThreshold = 64L * 1024 * 1024;
+    private boolean verifyChecksums;
+
+    /**
+     * A single file to move.
+     */
+    public static class Move {
+        private final Path source;
+        private final Path destination;
+        private final long size;
+        private final Path linkTarget;
+        private final boolean replaceExisting;
+
+        /**
+         * Constructor for Move class.
+         * @param source - The file to move.
+         * @param destination - The full path the file is moved to.
+         * @param size - The size of the file in bytes, as found by the scan.
+         */
+        public Move(Path source, Path destination, long size) {
+            this(source, destination, size, null);
+        }
+
+        /**
+         * Constructor for Move class.
+         * @param source - The file to move.
+         * @param destination - The full path the file is moved to.
+         * @param size - The size of the file in bytes, as found by the scan.
+         * @param linkTarget - An identical file to hard-link the destination to instead of moving the source's data,
+         *                     after which the source is deleted; or null to always move the data.
+         */
+        public Move(Path source, Path destination, long size, Path linkTarget) {
+            this(source, destination, size, linkTarget, false);
+        }
+
+        /**
+         * Constructor for Move class.
+         * @param source - The file to move.
+         * @param destination - The full path the file is moved to.
+         * @param size - The size of the file in bytes, as found by the scan.
+         * @param linkTarget - An identical file to hard-link the destination to instead of moving the source's data,
+         *                     after which the source is deleted; or null to always move the data.
+         * @param replaceExisting - True to replace a file already at the destination, false to fail the move instead.
+         */
+        public Move(Path source, Path destination, long size, Path linkTarget, boolean replaceExisting) {
+            this.source = source;
+            this.destination = destination;
+            this.size = size;
+            this.linkTarget = linkTarget;
+            this.replaceExisting = replaceExisting;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Path getDestination() {
+            return destination;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Path getLinkTarget() {
+            return linkTarget;
+        }
+
+        public boolean isReplaceExisting() {
+            return replaceExisting;
+        }
+    }
+
+    /**
+     * Constructor for MoveEngine class.
+     * @param parallelism - The number of files moved at the same time.
+     */
+    public MoveEngine(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.largeFileParallelism = Math.max(1, this.parallelism / 4);
+    }
+
+    /**
+     * Sets the size from which a cross-device move runs in the large-file lane.
+     * @param largeFileThreshold - The size in bytes.
+     */
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
+    /**
+     * Sets the number of large cross-device files copied at the same time.
+     * @param largeFileParallelism - The number of concurrent large copies, at least 1.
+     */
+    public void setLargeFileParallelism(int largeFileParallelism) {
+        this.largeFileParallelism = Math.max(1, largeFileParallelism);
+    }
+
+    /**
+     * Sets whether cross-device copies are compared by checksum before the source is deleted.
+     * @param verifyChecksums - True to verify copies.
+     */
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    /**
+     * Moves every file in the batch. Once the listener is cancelled, the remaining files are skipped.
+     * @param moves - The files to move.
+     * @param listener - Receives a count for every finished move, and can cancel the batch.
+     * @return - The outcome of every move, in the order of the batch.
+     */
+    public MoveResult move(List<Move> moves, ScanListener listener) {
+        return move(moves, listener, null);
+    }
+
+    /**
+     * Moves every file in the batch, marking each finished move in a journal. Moves skipped because the batch
+     * was cancelled are not marked, so resuming the journal picks them up.
+     * @param moves - The files to move.
+     * @param listener - Receives a count for every finished move, and can cancel the batch.
+     * @param journal - The journal the batch was planned in, or null to move without one.
+     * @return - The outcome of every move, in the order of the batch.
+     */
+    public MoveResult move(List<Move> moves, ScanListener listener, MoveJournal journal) {
+        MoveResult.Outcome[] outcomes = new MoveResult.Outcome[moves.size()];
+        Map<Path, FileStore> fileStores = new HashMap<>();
+        long startNanos = System.nanoTime();
+
+        // Bounded queue: when it is full the submitting thread runs the move itself
+        ThreadPoolExecutor smallFileLane = new ThreadPoolExecutor(
+                this.parallelism, this.parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.parallelism * QUEUED_MOVES_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        // Unbounded queue, so a long copy never runs on the submitting thread
+        ThreadPoolExecutor largeFileLane = new ThreadPoolExecutor(
+                this.largeFileParallelism, this.largeFileParallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        try {
+            for (int i = 0; i < outcomes.length; i++) {
+                int index = i;
+                Move move = moves.get(i);
+                boolean crossDevice = isCrossDevice(move, fileStores);
+                ThreadPoolExecutor lane = crossDevice && move.getSize() >= this.largeFileThreshold ? largeFileLane : smallFileLane;
+                lane.execute(() -> {
+                    outcomes[index] = moveFile(move, crossDevice, listener, journal);
+                    listener.onEntriesScanned(1);
+                });
+            }
+        } finally {
+            smallFileLane.shutdown();
+            largeFileLane.shutdown();
+            awaitTermination(smallFileLane);
+            awaitTermination(largeFileLane);
+        }
+
+        return new MoveResult(Arrays.asList(outcomes), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Moves a single file, turning any error into a skipped or failed outcome.
+     * @param move - The file to move.
+     * @param crossDevice - Whether the destination is on another file store than the source.
+     * @param listener - Checked for cancellation before the move starts.
+     * @param journal - The journal to mark the move done in, or null.
+     * @return - The outcome of the move.
+     */
+    private MoveResult.Outcome moveFile(Move move, boolean crossDevice, ScanListener listener, MoveJournal journal) {
+        if (listener.isCancelled()) {
+            return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.SKIPPED, "Cancelled", 0);
+        }
+
+        Metrics metrics = Metrics.get();
+        long startNanos = System.nanoTime();
+        metrics.movesInFlight.increment();
+        FileMovedEvent event = new FileMovedEvent();
+        event.begin();
+        try {
+            MoveResult.Outcome outcome = tryMove(move, crossDevice);
+            metrics.recordMove(outcome, System.nanoTime() - startNanos);
+            if (journal != null) {
+                try {
+                    journal.complete(move, outcome.getStatus());
+                } catch (IOException exception) {
+                    // The move itself stands; resuming treats it as done once it finds the source gone
+                    System.out.println("Error writing move journal: " + exception);
+                }
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = move.getSource().toString();
+                event.destination = move.getDestination().toString();
+                event.bytes = outcome.getBytes();
+                event.crossDevice = crossDevice;
+                event.status = outcome.getStatus().name();
+                event.commit();
+            }
+            return outcome;
+        } finally {
+            metrics.movesInFlight.decrement();
+        }
+    }
+
+    /**
+     * Moves a single file.
+     * @param move - The file to move.
+     * @param crossDevice - Whether the destination is on another file store than the source.
+     * @return - The outcome of the move.
+     */
+    private MoveResult.Outcome tryMove(Move move, boolean crossDevice) {
+        try {
+            // A link cannot replace a file, so a replacing move always moves the data
+            if (move.getLinkTarget() != null && !move.isReplaceExisting() && tryLink(move)) {
+                return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.MOVED, null, move.getSize());
+            }
+            if (crossDevice) {
+                copyAndDelete(move.getSource(), move.getDestination(), move.isReplaceExisting());
+            } else if (move.isReplaceExisting()) {
+                Files.move(move.getSource(), move.getDestination(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                // Same file store: a single rename that fails if the destination exists
+                Files.move(move.getSource(), move.getDestination());
+            }
+            return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.MOVED, null, move.getSize());
+        } catch (NoSuchFileException exception) {
+            // A missing destination folder is reported the same way, and must not pass for a harmless skip
+            if (Files.notExists(move.getSource(), LinkOption.NOFOLLOW_LINKS)) {
+                return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.SKIPPED, "Source no longer exists", 0);
+            }
+            return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.FAILED, exception.toString(), 0);
+        } catch (FileAlreadyExistsException exception) {
+            return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.FAILED, "Destination already exists", 0);
+        } catch (IOException | RuntimeException exception) {
+            return new MoveResult.Outcome(move.getSource(), move.getDestination(), MoveResult.Status.FAILED, exception.toString(), 0);
+        }
+    }
+
+    /**
+     * Puts a hard link to the move's link target at the destination and deletes the source, so no data is copied.
+     * @param move - The move, whose source is identical to its link target.
+     * @return - True if the file was linked; false if links are not possible here, e.g. across file stores or
+     *           because the link target is missing, in which case the file should be moved instead.
+     * @throws IOException - If the destination exists, or the source cannot be deleted after linking.
+     */
+    private boolean tryLink(Move move) throws IOException {
+        if (!Files.exists(move.getSource(), LinkOption.NOFOLLOW_LINKS)) {
+            throw new NoSuchFileException(move.getSource().toString());
+        }
+        try {
+            Files.createLink(move.getDestination(), move.getLinkTarget());
+        } catch (FileAlreadyExistsException exception) {
+            throw exception;
+        } catch (IOException | UnsupportedOperationException exception) {
+            return false;
+        }
+
+        try {
+            Files.delete(move.getSource());
+        } catch (IOException exception) {
+            Files.deleteIfExists(move.getDestination());
+            throw exception;
+        }
+        return true;
+    }
+
+    /**
+     * Moves a file to another file store: streams it to a newly created, uniquely named partial file next to the destination,
+     * optionally verifies it, renames it into place and only then deletes the source.
+     * @param source - The file to move.
+     * @param destination - The full path the file is moved to.
+     * @param replaceExisting - True to replace a file already at the destination.
+     * @throws IOException - If the copy, verification or delete fails. The source is kept in that case.
+     */
+    private void copyAndDelete(Path source, Path destination, boolean replaceExisting) throws IOException {
+        // Avoid copying a large file only to find the name is taken
+        if (!replaceExisting && Files.exists(destination, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(destination.toString());
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        // A unique name, so neither a file of the same name nor a partial file left by a crash is ever touched
+        Path partial = Files.createTempFile(destination.getParent(), "." + destination.getFileName() + ".", PARTIAL_SUFFIX);
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(partial, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+                out.force(true);
+            }
+            Files.setLastModifiedTime(partial, attributes.lastModifiedTime());
+            // Temporary files are created private, so give the copy the source's permissions back
+            if (Files.getFileStore(partial).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(partial, Files.getPosixFilePermissions(source));
+            }
+
+            if (this.verifyChecksums && checksum(source) != checksum(partial)) {
+                throw new IOException("Checksum mismatch after copying to " + destination);
+            }
+
+            if (replaceExisting) {
+                Files.move(partial, destination, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.move(partial, destination);
+            }
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(partial);
+            throw exception;
+        }
+
+        Files.delete(source);
+    }
+
+    /**
+     * Computes the CRC32C checksum of a file.
+     * @param file - The file to read.
+     * @return - The checksum.
+     * @throws IOException - If the file cannot be read.
+     */
+    private long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Checks whether a move crosses file stores. File stores are looked up once per directory.
+     * @param move - The move to check.
+     * @param fileStores - Cache of file stores by directory.
+     * @return - True if the source and destination directories are on different file stores.
+     */
+    private boolean isCrossDevice(Move move, Map<Path, FileStore> fileStores) {
+        try {
+            FileStore sourceStore = getFileStore(move.getSource().toAbsolutePath().getParent(), fileStores);
+            FileStore destinationStore = getFileStore(move.getDestination().toAbsolutePath().getParent(), fileStores);
+            return !sourceStore.equals(destinationStore);
+        } catch (IOException exception) {
+            // Let the move itself report the problem
+            return false;
+        }
+    }
+
+    private FileStore getFileStore(Path directory, Map<Path, FileStore> fileStores) throws IOException {
+        FileStore fileStore = fileStores.get(directory);
+        if (fileStore == null) {
+            fileStore = Files.getFileStore(directory);
+            fileStores.put(directory, fileStore);
+        }
+        return fileStore;
+    }
+
+    /**
+     * Waits for all submitted moves to finish, even if the calling thread is interrupted meanwhile.
+     * @param executor - The shut down executor.
+     */
+    private void awaitTermination(ThreadPoolExecutor executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.example.components;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of a batch of moves, so an interrupted sort can be resumed and a finished one undone without rescanning.
+ * The whole plan is written and forced to disk before the first file moves. Completed moves are then marked in groups,
+ * each written with a single write and sync, so journaling never becomes the bottleneck of the move loop.
+ * Every group carries a checksum; a group torn by a crash is ignored when the journal is read back. A mark lost that
+ * way is harmless, since resuming treats a move whose source is gone and whose destination exists as done.
+ */
+public class MoveJournal implements Closeable {
+    private static final int MAGIC = 0x46534d4a; // "FSMJ"
+    private static final int VERSION = 2;
+    private static final String FILE_SUFFIX = ".journal";
+    private static final byte PLANNED = 'P';
+    private static final byte COMPLETED = 'C';
+    private static final int REPLACE_EXISTING = 1;
+    private static final int HAS_LINK_TARGET = 2;
+    private static final int GROUP_SIZE = 1024;
+    private static final long GROUP_MILLIS = 200;
+
+    private final FileChannel channel;
+    private final List<MoveEngine.Move> moves = new ArrayList<>();
+    private final List<MoveResult.Status> statuses = new ArrayList<>();
+    private final Map<MoveEngine.Move, Integer> ids = new IdentityHashMap<>();
+    private ByteArrayOutputStream group = new ByteArrayOutputStream();
+    private DataOutputStream groupOut = new DataOutputStream(group);
+    private int groupRecords;
+    private long lastCommitMillis = System.currentTimeMillis();
+
+    private MoveJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Starts a new journal for a batch of moves, replacing any earlier journal in the same file.
+     * Returns once the whole plan is on disk.
+     * @param journalFile - The journal file.
+     * @param moves - The moves about to run.
+     * @return - The journal, open for marking completed moves.
+     * @throws IOException - If the journal cannot be written.
+     */
+    public static MoveJournal start(Path journalFile, List<MoveEngine.Move> moves) throws IOException {
+        Files.createDirectories(journalFile.getParent());
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        MoveJournal journal = new MoveJournal(channel);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (MoveEngine.Move move : moves) {
+                journal.add(move, null);
+                journal.groupOut.writeByte(PLANNED);
+                journal.groupOut.writeUTF(move.getSource().toString());
+                journal.groupOut.writeUTF(move.getDestination().toString());
+                journal.groupOut.writeLong(move.getSize());
+                journal.groupOut.writeByte((move.isReplaceExisting() ? REPLACE_EXISTING : 0)
+                        | (move.getLinkTarget() != null ? HAS_LINK_TARGET : 0));
+                if (move.getLinkTarget() != null) {
+                    journal.groupOut.writeUTF(move.getLinkTarget().toString());
+                }
+                if (++journal.groupRecords >= GROUP_SIZE) {
+                    journal.writeGroup(false);
+                }
+            }
+            journal.writeGroup(false);
+            channel.force(false);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+        return journal;
+    }
+
+    /**
+     * Opens an existing journal to look at or continue its batch.
+     * @param journalFile - The journal file.
+     * @return - The journal, open for marking completed moves.
+     * @throws IOException - If the journal cannot be read, or is not a move journal.
+     */
+    public static MoveJournal open(Path journalFile) throws IOException {
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MoveJournal journal = new MoveJournal(channel);
+        try {
+            long validLength = journal.read(Files.newInputStream(journalFile));
+            // Drop a torn tail, so new groups follow the last intact one
+            channel.truncate(validLength);
+            channel.position(validLength);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+        return journal;
+    }
+
+    /**
+     * Derives the journal file of an output folder.
+     * @param journalDirectory - The directory holding journal files.
+     * @param outputFolder - The absolute path of the folder sorted into.
+     * @return - The journal file.
+     */
+    public static Path fileFor(Path journalDirectory, String outputFolder) {
+        return journalDirectory.resolve(ScanIndex.hashedFileName(outputFolder, FILE_SUFFIX));
+    }
+
+    /**
+     * Returns the default directory for journal files, in the user's home directory.
+     * @return - The default journal directory.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".filesorter", "journal");
+    }
+
+    /**
+     * Marks a move of this journal as done. Marks are buffered and committed in groups.
+     * A move marked more than once keeps its last status.
+     * @param move - The move, as passed to start or returned by this journal.
+     * @param status - The outcome of the move.
+     * @throws IOException - If a group is due and cannot be written.
+     */
+    public synchronized void complete(MoveEngine.Move move, MoveResult.Status status) throws IOException {
+        Integer id = this.ids.get(move);
+        if (id == null) {
+            throw new IllegalArgumentException("Move is not part of this journal: " + move.getSource());
+        }
+        this.statuses.set(id, status);
+        this.groupOut.writeByte(COMPLETED);
+        this.groupOut.writeInt(id);
+        this.groupOut.writeByte(status.ordinal());
+        if (++this.groupRecords >= GROUP_SIZE || System.currentTimeMillis() - this.lastCommitMillis >= GROUP_MILLIS) {
+            writeGroup(true);
+        }
+    }
+
+    /**
+     * Returns the moves that have not been done yet, including those that failed, in plan order.
+     * @return - The outstanding moves.
+     */
+    public synchronized List<MoveEngine.Move> getPendingMoves() {
+        List<MoveEngine.Move> pending = new ArrayList<>();
+        for (int i = 0; i < this.moves.size(); i++) {
+            MoveResult.Status status = this.statuses.get(i);
+            if (status == null || status == MoveResult.Status.FAILED) {
+                pending.add(this.moves.get(i));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the moves that were done, in plan order.
+     * @return - The moved files.
+     */
+    public synchronized List<MoveEngine.Move> getCompletedMoves() {
+        List<MoveEngine.Move> completed = new ArrayList<>();
+        for (int i = 0; i < this.moves.size(); i++) {
+            if (this.statuses.get(i) == MoveResult.Status.MOVED) {
+                completed.add(this.moves.get(i));
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Commits any buffered marks and closes the journal. The file is kept, so the batch can still be undone.
+     * @throws IOException - If the last group cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeGroup(true);
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    private void add(MoveEngine.Move move, MoveResult.Status status) {
+        this.ids.put(move, this.moves.size());
+        this.moves.add(move);
+        this.statuses.add(status);
+    }
+
+    /**
+     * Writes the buffered records as one checksummed group: length, records, CRC32C.
+     * @param sync - Whether to force the group to disk.
+     * @throws IOException - If the group cannot be written.
+     */
+    private void writeGroup(boolean sync) throws IOException {
+        this.lastCommitMillis = System.currentTimeMillis();
+        if (this.groupRecords == 0) {
+            return;
+        }
+
+        this.groupOut.flush();
+        byte[] records = this.group.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(records);
+        ByteBuffer buffer = ByteBuffer.allocate(records.length + 12).putInt(records.length).put(records).putLong(crc.getValue()).flip();
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+        if (sync) {
+            this.channel.force(false);
+        }
+
+        this.group = new ByteArrayOutputStream();
+        this.groupOut = new DataOutputStream(this.group);
+        this.groupRecords = 0;
+    }
+
+    /**
+     * Reads the journal up to its last intact group.
+     * @param input - The journal file contents.
+     * @return - The length of the intact part of the file.
+     * @throws IOException - If the file is unreadable or not a move journal.
+     */
+    private long read(InputStream input) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a move journal");
+            }
+            long validLength = 8;
+
+            while (true) {
+                byte[] records;
+                long expectedCrc;
+                try {
+                    int length = in.readInt();
+                    if (length < 0) {
+                        break;
+                    }
+                    records = in.readNBytes(length);
+                    if (records.length < length) {
+                        break;
+                    }
+                    expectedCrc = in.readLong();
+                } catch (EOFException exception) {
+                    break; // Torn or missing tail
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(records);
+                if (crc.getValue() != expectedCrc) {
+                    break;
+                }
+
+                readGroup(records);
+                validLength += records.length + 12;
+            }
+            return validLength;
+        }
+    }
+
+    private void readGroup(byte[] records) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(records));
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            if (type == PLANNED) {
+                Path source = Path.of(in.readUTF());
+                Path destination = Path.of(in.readUTF());
+                long size = in.readLong();
+                int flags = in.readByte();
+                Path linkTarget = (flags & HAS_LINK_TARGET) != 0 ? Path.of(in.readUTF()) : null;
+                add(new MoveEngine.Move(source, destination, size, linkTarget, (flags & REPLACE_EXISTING) != 0), null);
+            } else if (type == COMPLETED) {
+                this.statuses.set(in.readInt(), MoveResult.Status.values()[in.readByte()]);
+            } else {
+                throw new IOException("Unknown journal record " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.components;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every move a sort will make, worked out before anything touches the disk.
+ * Moves are grouped by destination folder, in the order the folders are first reached, and within each folder ordered
+ * by source folder, so files that sit together on disk are moved together. The totals make a cheap dry run, and the
+ * plan lists every folder to create, so each is created once before the moves run.
+ */
+public class MovePlan {
+    private static final MovePlan EMPTY = new MovePlan(List.of());
+
+    private final List<Destination> destinations;
+    private final List<MoveEngine.Move> moves;
+    private final List<MoveResult.Outcome> skipped;
+    private final long totalBytes;
+
+    /**
+     * The moves into a single destination folder.
+     */
+    public static class Destination {
+        private final Path folder;
+        private final List<MoveEngine.Move> moves;
+        private final long totalBytes;
+
+        private Destination(Path folder, List<MoveEngine.Move> moves) {
+            this.folder = folder;
+            this.moves = Collections.unmodifiableList(moves);
+            long bytes = 0;
+            for (MoveEngine.Move move : moves) {
+                bytes += move.getSize();
+            }
+            this.totalBytes = bytes;
+        }
+
+        public Path getFolder() {
+            return folder;
+        }
+
+        public List<MoveEngine.Move> getMoves() {
+            return moves;
+        }
+
+        public int getFileCount() {
+            return moves.size();
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Constructor for MovePlan class.
+     * @param moves - The moves, in any order.
+     */
+    public MovePlan(List<MoveEngine.Move> moves) {
+        this(moves, List.of());
+    }
+
+    /**
+     * Constructor for MovePlan class.
+     * @param moves - The moves, in any order.
+     * @param skipped - The files the plan leaves where they are, with the reason.
+     */
+    public MovePlan(List<MoveEngine.Move> moves, List<MoveResult.Outcome> skipped) {
+        LinkedHashMap<Path, List<MoveEngine.Move>> byFolder = new LinkedHashMap<>();
+        for (MoveEngine.Move move : moves) {
+            byFolder.computeIfAbsent(move.getDestination().getParent(), folder -> new ArrayList<>()).add(move);
+        }
+
+        ArrayList<Destination> destinations = new ArrayList<>(byFolder.size());
+        ArrayList<MoveEngine.Move> orderedMoves = new ArrayList<>(moves.size());
+        long bytes = 0;
+        Comparator<MoveEngine.Move> bySourceFolder = Comparator.comparing(move -> move.getSource().getParent(),
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        for (Map.Entry<Path, List<MoveEngine.Move>> entry : byFolder.entrySet()) {
+            List<MoveEngine.Move> folderMoves = entry.getValue();
+            // Stable, so files from one source folder keep the order they were scanned in
+            folderMoves.sort(bySourceFolder);
+            Destination destination = new Destination(entry.getKey(), folderMoves);
+            destinations.add(destination);
+            orderedMoves.addAll(folderMoves);
+            bytes += destination.getTotalBytes();
+        }
+
+        this.destinations = Collections.unmodifiableList(destinations);
+        this.moves = Collections.unmodifiableList(orderedMoves);
+        this.skipped = List.copyOf(skipped);
+        this.totalBytes = bytes;
+    }
+
+    /**
+     * Returns a plan that moves nothing.
+     * @return - An empty plan.
+     */
+    public static MovePlan empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Getter for destinations.
+     * @return - The destination folders with their moves, in the order the folders are first reached.
+     */
+    public List<Destination> getDestinations() {
+        return destinations;
+    }
+
+    /**
+     * Getter for moves.
+     * @return - Every move, grouped by destination folder.
+     */
+    public List<MoveEngine.Move> getMoves() {
+        return moves;
+    }
+
+    /**
+     * Getter for skipped.
+     * @return - An outcome for every file the plan leaves where it is, e.g. because its name is taken.
+     */
+    public List<MoveResult.Outcome> getSkipped() {
+        return skipped;
+    }
+
+    public int getFileCount() {
+        return moves.size();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public boolean isEmpty() {
+        return moves.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Plan: %,d files, %,d bytes into %,d folders, %,d files left in place",
+                getFileCount(), this.totalBytes, this.destinations.size(), this.skipped.size());
+    }
+}
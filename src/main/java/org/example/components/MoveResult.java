@@ -0,0 +1,169 @@
+package org.example.components;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a batch of file moves: which files were moved, skipped or failed and why, plus throughput figures.
+ */
+public class MoveResult {
+    private final List<Outcome> outcomes;
+    private final long elapsedNanos;
+    private final int movedCount;
+    private final int skippedCount;
+    private final int failedCount;
+    private final long bytesMoved;
+
+    /**
+     * The status of a single file move.
+     */
+    public enum Status {
+        MOVED,
+        SKIPPED,
+        FAILED
+    }
+
+    /**
+     * Constructor for MoveResult class.
+     * @param outcomes - The outcome of every requested move, in request order.
+     * @param elapsedNanos - The wall time taken by the batch.
+     */
+    public MoveResult(List<Outcome> outcomes, long elapsedNanos) {
+        this.outcomes = Collections.unmodifiableList(new ArrayList<>(outcomes));
+        this.elapsedNanos = elapsedNanos;
+
+        int moved = 0;
+        int skipped = 0;
+        int failed = 0;
+        long bytes = 0;
+        for (Outcome outcome : this.outcomes) {
+            switch (outcome.getStatus()) {
+                case MOVED -> {
+                    moved++;
+                    bytes += outcome.getBytes();
+                }
+                case SKIPPED -> skipped++;
+                case FAILED -> failed++;
+            }
+        }
+        this.movedCount = moved;
+        this.skippedCount = skipped;
+        this.failedCount = failed;
+        this.bytesMoved = bytes;
+    }
+
+    /**
+     * Returns a result for a batch in which nothing was moved.
+     * @return - An empty result.
+     */
+    public static MoveResult empty() {
+        return new MoveResult(List.of(), 0);
+    }
+
+    public List<Outcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public int getMovedCount() {
+        return movedCount;
+    }
+
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public long getBytesMoved() {
+        return bytesMoved;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the outcomes with the given status.
+     * @param status - The status to filter on.
+     * @return - The matching outcomes, in request order.
+     */
+    public List<Outcome> getOutcomes(Status status) {
+        ArrayList<Outcome> matching = new ArrayList<>();
+        for (Outcome outcome : this.outcomes) {
+            if (outcome.getStatus() == status) {
+                matching.add(outcome);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the number of files moved per second of wall time.
+     * @return - The file throughput.
+     */
+    public double getFilesPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.movedCount / (this.elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns the number of bytes moved per second of wall time.
+     * @return - The byte throughput.
+     */
+    public double getBytesPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.bytesMoved / (this.elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Moved %,d, skipped %,d, failed %,d in %.2f s (%,.1f files/s, %,.1f MB/s)",
+                this.movedCount, this.skippedCount, this.failedCount, this.elapsedNanos / 1e9,
+                getFilesPerSecond(), getBytesPerSecond() / (1024 * 1024));
+    }
+
+    /**
+     * The outcome of moving a single file.
+     */
+    public static class Outcome {
+        private final Path source;
+        private final Path destination;
+        private final Status status;
+        private final String reason;
+        private final long bytes;
+
+        public Outcome(Path source, Path destination, Status status, String reason, long bytes) {
+            this.source = source;
+            this.destination = destination;
+            this.status = status;
+            this.reason = reason;
+            this.bytes = bytes;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Path getDestination() {
+            return destination;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Getter for reason.
+         * @return - Why the file was skipped or failed, or null if it was moved.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.components;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact storage for the paths of many files. Each directory path is stored once and referred to by index;
+ * file names are packed as UTF-8 into one shared byte array and referred to by offset. Full path strings are
+ * only built when asked for, so a large scan holds a few bytes per file instead of a full path string.
+ */
+class PathArena {
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ArrayList<String> directories = new ArrayList<>();
+    private final HashMap<String, Integer> directoryIds = new HashMap<>();
+    private byte[] names = new byte[4096];
+    private int namesLength;
+
+    /**
+     * Returns the index of a directory, adding it if it is new.
+     * @param directoryPath - The full path of the directory.
+     * @return - The directory index.
+     */
+    int directory(String directoryPath) {
+        Integer id = this.directoryIds.get(directoryPath);
+        if (id == null) {
+            id = this.directories.size();
+            this.directories.add(directoryPath);
+            this.directoryIds.put(directoryPath, id);
+        }
+        return id;
+    }
+
+    /**
+     * Looks up the index of a directory without adding it.
+     * @param directoryPath - The full path of the directory.
+     * @return - The directory index, or -1 if it is not in the arena.
+     */
+    int findDirectory(String directoryPath) {
+        Integer id = this.directoryIds.get(directoryPath);
+        return id == null ? -1 : id;
+    }
+
+    String directoryPath(int directory) {
+        return this.directories.get(directory);
+    }
+
+    /**
+     * Packs a file name into the arena.
+     * @param name - The file name.
+     * @return - The offset of the name, to pass to name().
+     */
+    int addName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("File name too long: " + name);
+        }
+        int needed = this.namesLength + 2 + bytes.length;
+        if (needed < 0 || needed > MAX_ARRAY_SIZE) {
+            throw new IllegalStateException("Path arena is full");
+        }
+        if (needed > this.names.length) {
+            this.names = Arrays.copyOf(this.names, (int) Math.min(MAX_ARRAY_SIZE, Math.max(needed, this.names.length * 2L)));
+        }
+
+        // Two-byte length prefix, then the UTF-8 bytes
+        int offset = this.namesLength;
+        this.names[offset] = (byte) (bytes.length >>> 8);
+        this.names[offset + 1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, this.names, offset + 2, bytes.length);
+        this.namesLength = needed;
+        return offset;
+    }
+
+    /**
+     * Decodes a file name.
+     * @param offset - The offset returned by addName().
+     * @return - The file name.
+     */
+    String name(int offset) {
+        int length = (this.names[offset] & 0xFF) << 8 | (this.names[offset + 1] & 0xFF);
+        return new String(this.names, offset + 2, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds the full path of a file.
+     * @param directory - The directory index.
+     * @param nameOffset - The offset of the file name.
+     * @return - The full path.
+     */
+    String path(int directory, int nameOffset) {
+        return this.directories.get(directory) + File.separator + name(nameOffset);
+    }
+}
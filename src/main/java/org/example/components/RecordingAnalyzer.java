@@ -0,0 +1,138 @@
+package org.example.components;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Summarizes a Flight Recorder recording of a scan or sort: where the time went, and the slowest directories and moves.
+ * Record with e.g. -XX:StartFlightRecording=filename=sort.jfr; the File Sorter events are enabled by default.
+ */
+public class RecordingAnalyzer {
+    private static final String DIRECTORY_LISTED = "org.example.filesorter.DirectoryListed";
+    private static final String FILE_MOVED = "org.example.filesorter.FileMoved";
+    private static final String FOLDER_CREATED = "org.example.filesorter.FolderCreated";
+    private static final Comparator<RecordedEvent> BY_DURATION = Comparator.comparing(RecordedEvent::getDuration);
+
+    private final int top;
+    private final PriorityQueue<RecordedEvent> slowestDirectories = new PriorityQueue<>(BY_DURATION);
+    private final PriorityQueue<RecordedEvent> slowestMoves = new PriorityQueue<>(BY_DURATION);
+    private long listings;
+    private long listingNanos;
+    private long statNanos;
+    private long folderChecks;
+    private long foldersCreated;
+    private long folderNanos;
+    private long moves;
+    private long moveNanos;
+    private long crossDeviceMoves;
+    private long crossDeviceNanos;
+    private long bytesMoved;
+
+    private RecordingAnalyzer(int top) {
+        this.top = top;
+    }
+
+    /**
+     * Reads a recording and prints its summary.
+     * @param recording - The .jfr file.
+     * @param top - The number of slowest directories and moves to list.
+     * @param out - Where the summary is printed.
+     * @throws IOException - If the recording cannot be read.
+     */
+    public static void summarize(Path recording, int top, PrintStream out) throws IOException {
+        RecordingAnalyzer analyzer = new RecordingAnalyzer(top);
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                analyzer.add(file.readEvent());
+            }
+        }
+        analyzer.print(out);
+    }
+
+    private void add(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        switch (event.getEventType().getName()) {
+            case DIRECTORY_LISTED -> {
+                this.listings++;
+                this.listingNanos += nanos;
+                this.statNanos += event.getLong("statDuration");
+                keepSlowest(this.slowestDirectories, event);
+            }
+            case FILE_MOVED -> {
+                this.moves++;
+                this.moveNanos += nanos;
+                this.bytesMoved += event.getLong("bytes");
+                if (event.getBoolean("crossDevice")) {
+                    this.crossDeviceMoves++;
+                    this.crossDeviceNanos += nanos;
+                }
+                keepSlowest(this.slowestMoves, event);
+            }
+            case FOLDER_CREATED -> {
+                this.folderChecks++;
+                this.folderNanos += nanos;
+                if (event.getBoolean("created")) {
+                    this.foldersCreated++;
+                }
+            }
+            default -> {
+                // Not one of ours
+            }
+        }
+    }
+
+    /**
+     * Keeps the slowest events seen so far; the queue head is the fastest of them.
+     */
+    private void keepSlowest(PriorityQueue<RecordedEvent> slowest, RecordedEvent event) {
+        if (slowest.size() < this.top) {
+            slowest.add(event);
+        } else if (this.top > 0 && BY_DURATION.compare(event, slowest.peek()) > 0) {
+            slowest.poll();
+            slowest.add(event);
+        }
+    }
+
+    private void print(PrintStream out) {
+        out.println("Durations are summed over all threads, so they can exceed the wall time of a parallel run.");
+        out.printf("Directory listings: %,d in %s, of which %s on type and size lookups (%.0f%%)%n",
+                this.listings, millis(this.listingNanos), millis(this.statNanos),
+                this.listingNanos == 0 ? 0.0 : this.statNanos * 100.0 / this.listingNanos);
+        out.printf("Output folders: %,d checked, %,d created in %s%n", this.folderChecks, this.foldersCreated, millis(this.folderNanos));
+        out.printf("File moves: %,d in %s, %,d bytes; %,d cross-device in %s%n",
+                this.moves, millis(this.moveNanos), this.bytesMoved, this.crossDeviceMoves, millis(this.crossDeviceNanos));
+
+        out.println();
+        out.println("Slowest directories:");
+        for (RecordedEvent event : sortedSlowestFirst(this.slowestDirectories)) {
+            out.printf("  %12s  stat %12s  %,8d entries  %s%n", millis(event.getDuration().toNanos()),
+                    millis(event.getLong("statDuration")), event.getInt("entries"), event.getString("path"));
+        }
+
+        out.println();
+        out.println("Slowest moves:");
+        for (RecordedEvent event : sortedSlowestFirst(this.slowestMoves)) {
+            out.printf("  %12s  %,14d bytes  %-12s %-7s  %s -> %s%n", millis(event.getDuration().toNanos()),
+                    event.getLong("bytes"), event.getBoolean("crossDevice") ? "cross-device" : "rename",
+                    event.getString("status"), event.getString("source"), event.getString("destination"));
+        }
+    }
+
+    private static List<RecordedEvent> sortedSlowestFirst(PriorityQueue<RecordedEvent> slowest) {
+        List<RecordedEvent> sorted = new ArrayList<>(slowest);
+        sorted.sort(BY_DURATION.reversed());
+        return sorted;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%,.1f ms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.components;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact on-disk index of a scan root, holding the modification time and entries (name, type, size, modification time) of every listed directory.
+ * A rescan only lists directories whose modification time changed and reuses the cached entries of the rest.
+ * Note that a file changed in place does not touch its directory, so cached sizes can lag until the directory itself changes.
+ */
+public class ScanIndex {
+    private static final int MAGIC = 0x46534958; // "FSIX"
+    private static final int VERSION = 3;
+    private static final String FILE_SUFFIX = ".idx";
+    // A directory changed within this window of being listed may have changed again unnoticed in the same mtime tick
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    static final byte TYPE_FILE = 0;
+    static final byte TYPE_FOLDER = 1;
+    // Added to the type of an entry that is a symbolic link to a file or folder
+    static final byte TYPE_LINK = 2;
+
+    private final Path indexFile;
+    private final String scanRoot;
+    private final ConcurrentHashMap<String, DirectoryRecord> directories = new ConcurrentHashMap<>();
+
+    /**
+     * The cached listing of a single directory.
+     */
+    static class DirectoryRecord {
+        final long modifiedTime;
+        final long listedTime;
+        final String[] names;
+        final byte[] types;
+        final long[] sizes;
+        final long[] modifiedTimes;
+        // The file keys of the folders, as read by a fresh listing; null for listings read from disk, which do not store them
+        Object[] fileKeys;
+
+        DirectoryRecord(long modifiedTime, long listedTime, String[] names, byte[] types, long[] sizes, long[] modifiedTimes) {
+            this.modifiedTime = modifiedTime;
+            this.listedTime = listedTime;
+            this.names = names;
+            this.types = types;
+            this.sizes = sizes;
+            this.modifiedTimes = modifiedTimes;
+        }
+
+        boolean isFile(int index) {
+            return (this.types[index] & TYPE_FOLDER) == 0;
+        }
+
+        boolean isLink(int index) {
+            return (this.types[index] & TYPE_LINK) != 0;
+        }
+
+        /**
+         * Checks whether this listing can be reused for a directory with the given modification time.
+         * @param currentModifiedTime - The directory's modification time on disk.
+         * @return - True if the directory has not changed since it was listed.
+         */
+        boolean isCurrent(long currentModifiedTime) {
+            return currentModifiedTime != 0
+                    && currentModifiedTime == this.modifiedTime
+                    && this.listedTime - this.modifiedTime > RACY_WINDOW_MILLIS;
+        }
+    }
+
+    private ScanIndex(Path indexFile, String scanRoot) {
+        this.indexFile = indexFile;
+        this.scanRoot = scanRoot;
+    }
+
+    /**
+     * Loads the index of a scan root, or starts an empty one if there is none yet.
+     * A corrupt index, or one written for another scan root or format version, is discarded and rebuilt.
+     * @param indexDirectory - The directory holding index files.
+     * @param scanRoot - The absolute path of the scan root.
+     * @return - The loaded index.
+     */
+    public static ScanIndex load(Path indexDirectory, String scanRoot) {
+        ScanIndex index = new ScanIndex(indexDirectory.resolve(hashedFileName(scanRoot, FILE_SUFFIX)), scanRoot);
+        try {
+            index.read();
+        } catch (NoSuchFileException exception) {
+            // First scan of this root
+        } catch (IOException | RuntimeException exception) {
+            System.out.println("Scan index " + index.indexFile + " is corrupt or stale, rebuilding: " + exception);
+            index.directories.clear();
+        }
+        return index;
+    }
+
+    /**
+     * Returns the default directory for index files, in the user's home directory.
+     * @return - The default index directory.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".filesorter", "index");
+    }
+
+    DirectoryRecord get(String directoryPath) {
+        return this.directories.get(directoryPath);
+    }
+
+    void put(String directoryPath, DirectoryRecord record) {
+        this.directories.put(directoryPath, record);
+    }
+
+    void remove(String directoryPath) {
+        this.directories.remove(directoryPath);
+    }
+
+    /**
+     * Returns the number of directories in the index.
+     * @return - The number of cached directories.
+     */
+    public int size() {
+        return this.directories.size();
+    }
+
+    /**
+     * Checks every cached directory against the disk and drops those that were deleted or changed.
+     * @return - The number of directories dropped.
+     */
+    public int validate() {
+        int dropped = 0;
+        for (Map.Entry<String, DirectoryRecord> entry : this.directories.entrySet()) {
+            long modifiedTime = DirectoryWalker.modifiedTime(Path.of(entry.getKey()));
+            if (!entry.getValue().isCurrent(modifiedTime)) {
+                this.directories.remove(entry.getKey());
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Drops every cached directory and deletes the index file, so the next scan lists everything again.
+     * @throws IOException - If the index file cannot be deleted.
+     */
+    public void clear() throws IOException {
+        this.directories.clear();
+        Files.deleteIfExists(this.indexFile);
+    }
+
+    /**
+     * Writes the index to disk. The file is replaced atomically, so a crash never leaves a half-written index behind.
+     * @throws IOException - If the index cannot be written.
+     */
+    public void save() throws IOException {
+        Files.createDirectories(this.indexFile.getParent());
+        Path temporaryFile = this.indexFile.resolveSibling(this.indexFile.getFileName() + ".tmp");
+
+        CRC32C crc = new CRC32C();
+        try (OutputStream fileOut = Files.newOutputStream(temporaryFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(this.scanRoot);
+            out.writeInt(this.directories.size());
+
+            for (Map.Entry<String, DirectoryRecord> entry : this.directories.entrySet()) {
+                DirectoryRecord record = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(record.modifiedTime);
+                out.writeLong(record.listedTime);
+                out.writeInt(record.names.length);
+                for (int i = 0; i < record.names.length; i++) {
+                    out.writeUTF(record.names[i]);
+                    out.writeByte(record.types[i]);
+                    out.writeLong(record.sizes[i]);
+                    out.writeLong(record.modifiedTimes[i]);
+                }
+            }
+
+            // Trailer: checksum of everything above
+            out.flush();
+            new DataOutputStream(fileOut).writeLong(crc.getValue());
+        }
+
+        Files.move(temporaryFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the index file, verifying its header and checksum.
+     * @throws IOException - If the file is missing, unreadable or corrupt.
+     */
+    private void read() throws IOException {
+        CRC32C crc = new CRC32C();
+        try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(this.indexFile), 1 << 16)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(fileIn, crc));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a scan index");
+            }
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported scan index version");
+            }
+            if (!in.readUTF().equals(this.scanRoot)) {
+                throw new IOException("Scan index belongs to another folder");
+            }
+
+            int directoryCount = in.readInt();
+            for (int d = 0; d < directoryCount; d++) {
+                String path = in.readUTF();
+                long modifiedTime = in.readLong();
+                long listedTime = in.readLong();
+                int entryCount = in.readInt();
+                String[] names = new String[entryCount];
+                byte[] types = new byte[entryCount];
+                long[] sizes = new long[entryCount];
+                long[] modifiedTimes = new long[entryCount];
+                for (int i = 0; i < entryCount; i++) {
+                    names[i] = in.readUTF();
+                    types[i] = in.readByte();
+                    sizes[i] = in.readLong();
+                    modifiedTimes[i] = in.readLong();
+                }
+                this.directories.put(path, new DirectoryRecord(modifiedTime, listedTime, names, types, sizes, modifiedTimes));
+            }
+
+            long expectedCrc = crc.getValue();
+            if (new DataInputStream(fileIn).readLong() != expectedCrc) {
+                throw new IOException("Scan index checksum mismatch");
+            }
+        }
+    }
+
+    /**
+     * Derives a stable file name from a folder path.
+     * @param folder - The absolute path of the folder.
+     * @param suffix - The file name suffix.
+     * @return - The file name.
+     */
+    static String hashedFileName(String folder, String suffix) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(folder.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16) + suffix;
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
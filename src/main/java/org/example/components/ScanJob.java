@@ -0,0 +1,154 @@
+package org.example.components;
+
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs a FileHandler operation on a background thread and feeds its results back to the event dispatch thread.
+ * Found items are coalesced and flushed, together with the progress text, at most every REFRESH_INTERVAL_MS.
+ *
+ * @param <T> The result type of the operation.
+ */
+class ScanJob<T> extends SwingWorker<T, ScannedFile> implements ScanListener {
+    private static final int REFRESH_INTERVAL_MS = 250;
+
+    private final String description;
+    private final Task<T> task;
+    private final JLabel progressLabel;
+    private final Consumer<List<ScannedFile>> onBatch;
+    private final Consumer<T> onDone;
+    private final LongAdder entriesScanned = new LongAdder();
+    private final List<ScannedFile> pending = new ArrayList<>();
+    private final Timer refreshTimer;
+    private Runnable onFinished = () -> {};
+    private long startNanos;
+
+    /**
+     * An operation that reports its progress to a ScanListener.
+     *
+     * @param <T> The result type of the operation.
+     */
+    interface Task<T> {
+        T run(ScanListener listener) throws Exception;
+    }
+
+    /**
+     * Constructor for ScanJob class.
+     *
+     * @param description The text shown in the progress label, e.g. "Scanning".
+     * @param task The operation to run in the background.
+     * @param progressLabel The label that shows entries/sec and elapsed time.
+     * @param onBatch Receives found items in batches on the event dispatch thread.
+     * @param onDone Receives the result on the event dispatch thread, unless the job failed or was cancelled.
+     */
+    ScanJob(String description, Task<T> task, JLabel progressLabel, Consumer<List<ScannedFile>> onBatch, Consumer<T> onDone) {
+        this.description = description;
+        this.task = task;
+        this.progressLabel = progressLabel;
+        this.onBatch = onBatch;
+        this.onDone = onDone;
+        this.refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> flush());
+    }
+
+    /**
+     * Starts the job and its refresh timer. Must be called on the event dispatch thread.
+     */
+    void start() {
+        this.startNanos = System.nanoTime();
+        this.refreshTimer.start();
+        flush();
+        execute();
+    }
+
+    /**
+     * Sets what runs on the event dispatch thread once the operation has returned, whether it succeeded, failed or was cancelled.
+     * A cancelled job is done as soon as it is cancelled, while its operation may still be winding down; this runs only after that.
+     *
+     * @param onFinished The action to run.
+     */
+    void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        try {
+            return this.task.run(this);
+        } finally {
+            SwingUtilities.invokeLater(this.onFinished);
+        }
+    }
+
+    @Override
+    public void onFound(ScannedFile found) {
+        publish(found);
+    }
+
+    @Override
+    public void onEntriesScanned(int count) {
+        this.entriesScanned.add(count);
+    }
+
+    @Override
+    protected void process(List<ScannedFile> chunks) {
+        // Hold on to results until the next refresh tick
+        this.pending.addAll(chunks);
+    }
+
+    @Override
+    protected void done() {
+        this.refreshTimer.stop();
+
+        T result;
+        try {
+            result = get();
+        } catch (CancellationException | InterruptedException exception) {
+            this.pending.clear();
+            this.progressLabel.setText(this.description + " cancelled after " + formatElapsed());
+            return;
+        } catch (ExecutionException exception) {
+            this.pending.clear();
+            this.progressLabel.setText(this.description + " failed: " + exception.getCause().getMessage());
+            System.out.println("Error in background job: " + exception.getCause());
+            return;
+        }
+
+        flush();
+        this.progressLabel.setText(String.format("%s done: %,d entries in %s", this.description, this.entriesScanned.sum(), formatElapsed()));
+        this.onDone.accept(result);
+    }
+
+    /**
+     * Hands pending results to the panel and updates the progress label.
+     */
+    private void flush() {
+        if (!this.pending.isEmpty()) {
+            this.onBatch.accept(new ArrayList<>(this.pending));
+            this.pending.clear();
+        }
+
+        if (!isDone()) {
+            double seconds = Math.max((System.nanoTime() - this.startNanos) / 1e9, 0.001);
+            long entries = this.entriesScanned.sum();
+            this.progressLabel.setText(String.format("%s... %,d entries (%,.0f/s), %s elapsed", this.description, entries, entries / seconds, formatElapsed()));
+        }
+    }
+
+    /**
+     * Formats the time since the job started, e.g. "1:05".
+     *
+     * @return - The elapsed time as minutes and seconds.
+     */
+    private String formatElapsed() {
+        long seconds = (System.nanoTime() - this.startNanos) / 1_000_000_000L;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.components;
+
+/**
+ * Receives progress from a running scan or move, and lets the caller cancel it.
+ * Methods may be called from several worker threads at once.
+ */
+public interface ScanListener {
+    /**
+     * A listener that ignores progress and never cancels.
+     */
+    ScanListener NONE = new ScanListener() {};
+
+    /**
+     * Called when a file, folder or new file extension is found.
+     * @param found - The found item.
+     */
+    default void onFound(ScannedFile found) {
+    }
+
+    /**
+     * Called after a batch of directory entries has been processed.
+     * @param count - The number of entries processed.
+     */
+    default void onEntriesScanned(int count) {
+    }
+
+    /**
+     * Called once when a scan stops listing further folders because it used up its entry budget.
+     * The entries listed so far are still returned.
+     * @param maxEntries - The entry budget of the scan.
+     */
+    default void onScanTruncated(long maxEntries) {
+    }
+
+    /**
+     * Checked regularly by the running operation, which stops as soon as this returns true.
+     * @return - True if the operation should stop.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
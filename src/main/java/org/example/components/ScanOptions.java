@@ -0,0 +1,239 @@
+package org.example.components;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Limits what a scan walks into. Folders are pruned before they are listed, so an excluded or too deep subtree
+ * (e.g. .git or node_modules) costs nothing beyond the parent's directory entry.
+ * <p>
+ * Exclude and include patterns are globs: "*" and "?" match within a name, "**" across folders, and {a,b} either.
+ * A trailing "/**" also matches the folder itself, so "build/**" prunes build rather than listing it empty.
+ * A pattern without "/" is matched against the name of each file or folder; one with "/" against its path relative to
+ * the scanned folder, with "/" between names. Excluded files and folders are left out. Include patterns apply to files
+ * only: once one is given, only files matching an include pattern are kept.
+ */
+public class ScanOptions {
+    private final NameFilter excludes = new NameFilter();
+    private final NameFilter includes = new NameFilter();
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxEntries = Long.MAX_VALUE;
+    private LinkPolicy linkPolicy = LinkPolicy.FOLLOW;
+
+    /**
+     * What a scan does with symbolic links.
+     */
+    public enum LinkPolicy {
+        // Treat links like the files and folders they point to; each folder is walked once however many links lead
+        // to it, so loops end
+        FOLLOW,
+        // Leave links out
+        SKIP
+    }
+
+    /**
+     * Compiled glob patterns, split so that plain names, the usual case, are a hash lookup.
+     */
+    private static class NameFilter {
+        private final Set<String> names = new HashSet<>();
+        private final List<Pattern> namePatterns = new ArrayList<>();
+        private final Set<String> paths = new HashSet<>();
+        private final List<Pattern> pathPatterns = new ArrayList<>();
+
+        private void add(String glob) {
+            boolean isPath = glob.indexOf('/') >= 0;
+            if (SortRules.isGlob(glob)) {
+                (isPath ? this.pathPatterns : this.namePatterns).add(Pattern.compile(toRegex(glob)));
+            } else {
+                (isPath ? this.paths : this.names).add(glob);
+            }
+        }
+
+        private boolean isEmpty() {
+            return this.names.isEmpty() && this.namePatterns.isEmpty() && this.paths.isEmpty() && this.pathPatterns.isEmpty();
+        }
+
+        private boolean matches(String parentPath, String name) {
+            if (this.names.contains(name)) {
+                return true;
+            }
+            for (Pattern pattern : this.namePatterns) {
+                if (pattern.matcher(name).matches()) {
+                    return true;
+                }
+            }
+            if (this.paths.isEmpty() && this.pathPatterns.isEmpty()) {
+                return false;
+            }
+
+            String path = childPath(parentPath, name);
+            if (this.paths.contains(path)) {
+                return true;
+            }
+            for (Pattern pattern : this.pathPatterns) {
+                if (pattern.matcher(path).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Leaves out files and folders matching a glob pattern.
+     * @param glob - The pattern, e.g. "node_modules", ".*" or "build/**".
+     * @throws java.util.regex.PatternSyntaxException - If the pattern is malformed.
+     */
+    public void addExclude(String glob) {
+        this.excludes.add(glob);
+    }
+
+    /**
+     * Keeps only files matching one of the include patterns.
+     * @param glob - The pattern, e.g. "*.jpg".
+     * @throws java.util.regex.PatternSyntaxException - If the pattern is malformed.
+     */
+    public void addInclude(String glob) {
+        this.includes.add(glob);
+    }
+
+    /**
+     * Sets how deep below the scanned folder files and folders are found.
+     * @param maxDepth - The maximum depth, 1 for only the entries directly inside the scanned folder.
+     * @throws IllegalArgumentException - If the depth is less than 1.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum depth must be at least 1");
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets a budget of directory entries a scan lists, after which no further folders are listed.
+     * Folders listed in parallel may take a scan somewhat over the budget.
+     * @param maxEntries - The maximum number of entries.
+     * @throws IllegalArgumentException - If the budget is less than 1.
+     */
+    public void setMaxEntries(long maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum entries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setLinkPolicy(LinkPolicy linkPolicy) {
+        this.linkPolicy = linkPolicy;
+    }
+
+    public LinkPolicy getLinkPolicy() {
+        return linkPolicy;
+    }
+
+    boolean followsLinks() {
+        return this.linkPolicy == LinkPolicy.FOLLOW;
+    }
+
+    /**
+     * Checks whether a file is kept.
+     * @param parentPath - The path of the file's folder relative to the scanned folder, or an empty string for the scanned folder itself.
+     * @param name - The file name.
+     * @param depth - The depth of the file below the scanned folder.
+     * @return - True if the file is kept.
+     */
+    boolean acceptsFile(String parentPath, String name, int depth) {
+        return depth <= this.maxDepth
+                && !this.excludes.matches(parentPath, name)
+                && (this.includes.isEmpty() || this.includes.matches(parentPath, name));
+    }
+
+    /**
+     * Checks whether a folder is listed.
+     * @param parentPath - The path of the folder's parent relative to the scanned folder, or an empty string for the scanned folder itself.
+     * @param name - The folder name.
+     * @param depth - The depth of the folder below the scanned folder.
+     * @return - True if the folder is listed; false if its subtree is pruned.
+     */
+    boolean acceptsFolder(String parentPath, String name, int depth) {
+        return depth < this.maxDepth && !this.excludes.matches(parentPath, name);
+    }
+
+    /**
+     * Joins a folder's relative path and the name of an entry in it.
+     * @param parentPath - The folder's path relative to the scanned folder, or an empty string for the scanned folder itself.
+     * @param name - The entry name.
+     * @return - The entry's path relative to the scanned folder.
+     */
+    static String childPath(String parentPath, String name) {
+        return parentPath.isEmpty() ? name : parentPath + "/" + name;
+    }
+
+    /**
+     * Translates a glob pattern into a regular expression over "/"-separated paths.
+     * @param glob - The glob pattern.
+     * @return - The regular expression.
+     */
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?"); // "**/" also matches no folder at all
+                        } else if (i + 1 == glob.length() && regex.length() > 0 && regex.charAt(regex.length() - 1) == '/') {
+                            regex.setLength(regex.length() - 1);
+                            regex.append("(?:/.*)?"); // A trailing "/**" also matches the folder itself
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '{' -> {
+                    inGroup = true;
+                    regex.append("(?:");
+                }
+                case '}' -> {
+                    inGroup = false;
+                    regex.append(')');
+                }
+                case ',' -> regex.append(inGroup ? "|" : ",");
+                case '[' -> {
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, end);
+                        regex.append('[').append(set.startsWith("!") ? "^" + set.substring(1) : set).append(']');
+                        i = end;
+                    }
+                }
+                default -> {
+                    if ("\\.^$|+()".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                }
+            }
+        }
+        return regex.toString();
+    }
+}
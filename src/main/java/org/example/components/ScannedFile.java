@@ -2,18 +2,57 @@ package org.example.components;
 
 public class ScannedFile {
     private final String name;
-    private final String type;
+    private final Type type;
+    private final int fileCount;
+    private final long totalBytes;
+    private final long lastModified;
 
-    public ScannedFile(String name, String type) {
+    /**
+     * What a scanned entry stands for.
+     */
+    public enum Type {
+        FILE,
+        FOLDER,
+        EXTENSION
+    }
+
+    public ScannedFile(String name, Type type) {
+        this(name, type, 0, 0);
+    }
+
+    public ScannedFile(String name, Type type, int fileCount, long totalBytes) {
+        this(name, type, fileCount, totalBytes, 0);
+    }
+
+    public ScannedFile(String name, Type type, int fileCount, long totalBytes, long lastModified) {
         this.name = name;
         this.type = type;
+        this.fileCount = fileCount;
+        this.totalBytes = totalBytes;
+        this.lastModified = lastModified;
     }
 
     public String getName() {
         return name;
     }
 
-    public String getType() {
+    public Type getType() {
         return type;
     }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the modification time read when the file or folder was scanned.
+     * @return - The modification time in milliseconds since the epoch, or 0 if it is not known.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
 }
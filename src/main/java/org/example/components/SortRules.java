@@ -0,0 +1,382 @@
+package org.example.components;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which folder within Output each file is sorted into.
+ * A rule sends files matching any of its extensions or glob patterns to its folder, optionally split further into
+ * size buckets and year or year/month folders by modification time. The first matching rule wins; files no rule
+ * matches go to the usual "&lt;ext&gt; files" folder.
+ * Rules are compiled once into a table keyed by extension, holding for each extension only the rules that can match it,
+ * up to the first that matches it unconditionally. Classifying a file is then a single hash lookup in the common case.
+ * <p>
+ * In text form every rule is a line: {@code <folder> = <matchers> [; date=year|month] [; size=<limit>,...]},
+ * where matchers are separated by commas and are extensions (".jpg"), glob patterns on the file name ("IMG_*.jpg") or "*" for every file,
+ * all matched regardless of case, and size limits are given in bytes or with a KB, MB or GB suffix. Blank lines and lines starting with # are ignored.
+ */
+public class SortRules {
+    /**
+     * Rules that sort every file into its "&lt;ext&gt; files" folder.
+     */
+    public static final SortRules NONE = compile(List.of());
+
+    private static final String UNKNOWN_DATE_FOLDER = "Unknown date";
+
+    private final int ruleCount;
+    private final HashMap<String, Rule[]> rulesByExtension = new HashMap<>();
+    // For extensions no rule names: the rules with patterns that can match any extension
+    private final Rule[] otherRules;
+
+    /**
+     * How a rule splits its folder by modification date.
+     */
+    public enum DateLayout {
+        NONE,
+        YEAR,
+        MONTH
+    }
+
+    /**
+     * A single sorting rule.
+     */
+    public static class Rule {
+        private final String folder;
+        private final Set<String> extensions = new LinkedHashSet<>();
+        private final List<Glob> globs = new ArrayList<>();
+        private final boolean matchesEveryFile;
+        private final DateLayout dateLayout;
+        private final long[] sizeLimits;
+        private final String[] sizeFolders;
+
+        /**
+         * Constructor for Rule class.
+         * @param folder - The folder within Output that matching files go to; may contain subfolders.
+         * @param matchers - Extensions such as ".jpg", glob patterns on the file name such as "IMG_*.jpg", or "*" for every file.
+         * @param dateLayout - How to split the folder by modification date.
+         * @param sizeLimits - Ascending size limits in bytes splitting the folder into size buckets, or an empty array for none.
+         * @throws IllegalArgumentException - If the folder leaves Output, there are no matchers, or the size limits are not ascending.
+         */
+        public Rule(String folder, Collection<String> matchers, DateLayout dateLayout, long[] sizeLimits) {
+            Path folderPath = Path.of(folder).normalize();
+            if (folder.isBlank() || folderPath.isAbsolute() || folderPath.startsWith("..")) {
+                throw new IllegalArgumentException("Rule folder must be a folder within Output: " + folder);
+            }
+            if (matchers.isEmpty()) {
+                throw new IllegalArgumentException("Rule for " + folder + " matches no files");
+            }
+            for (int i = 1; i < sizeLimits.length; i++) {
+                if (sizeLimits[i] <= sizeLimits[i - 1]) {
+                    throw new IllegalArgumentException("Size limits must be ascending: " + Arrays.toString(sizeLimits));
+                }
+            }
+
+            this.folder = folderPath.toString();
+            this.dateLayout = dateLayout;
+            this.sizeLimits = sizeLimits.clone();
+            this.sizeFolders = sizeFolders(this.sizeLimits);
+            boolean matchesEveryFile = false;
+            for (String matcher : matchers) {
+                if (matcher.equals("*")) {
+                    matchesEveryFile = true;
+                } else if (matcher.startsWith(".") && !isGlob(matcher)) {
+                    this.extensions.add(ExtensionIndex.normalize(matcher));
+                } else {
+                    this.globs.add(new Glob(matcher));
+                }
+            }
+            this.matchesEveryFile = matchesEveryFile;
+        }
+
+        /**
+         * Checks whether this rule may match a file with the given extension.
+         * @param extension - The normalized extension, or null for an extension no rule names.
+         * @return - True if some file with this extension may match.
+         */
+        private boolean canMatch(String extension) {
+            if (this.matchesEveryFile || this.extensions.contains(extension)) {
+                return true;
+            }
+            for (Glob glob : this.globs) {
+                if (glob.extension == null || glob.extension.equals(extension)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Checks whether this rule matches every file with the given extension, whatever its name.
+         * @param extension - The normalized extension, or null for an extension no rule names.
+         * @return - True if every file with this extension matches.
+         */
+        private boolean matchesAll(String extension) {
+            return this.matchesEveryFile || this.extensions.contains(extension);
+        }
+
+        private boolean matches(String fileName, String extension) {
+            if (matchesAll(extension)) {
+                return true;
+            }
+            for (Glob glob : this.globs) {
+                if ((glob.extension == null || glob.extension.equals(extension)) && glob.pattern.matcher(fileName).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String folderFor(long size, long modifiedTime) {
+            StringBuilder path = new StringBuilder(this.folder);
+            if (this.sizeLimits.length > 0) {
+                // Index of the first limit above the size, which is also the index of the size's bucket
+                int bucket = Arrays.binarySearch(this.sizeLimits, size);
+                bucket = bucket >= 0 ? bucket + 1 : -bucket - 1;
+                path.append(File.separatorChar).append(this.sizeFolders[bucket]);
+            }
+            if (this.dateLayout != DateLayout.NONE) {
+                path.append(File.separatorChar);
+                if (modifiedTime <= 0) {
+                    path.append(UNKNOWN_DATE_FOLDER);
+                } else {
+                    ZonedDateTime date = Instant.ofEpochMilli(modifiedTime).atZone(ZoneId.systemDefault());
+                    path.append(date.getYear());
+                    if (this.dateLayout == DateLayout.MONTH) {
+                        path.append(File.separatorChar).append(String.format("%02d", date.getMonthValue()));
+                    }
+                }
+            }
+            return path.toString();
+        }
+    }
+
+    /**
+     * A compiled glob pattern, with the extension every name it matches ends in if the pattern fixes one.
+     * Both ignore case, so a glob finds every file filed under its extension, e.g. "IMG_*.jpg" finds IMG_1.JPG.
+     */
+    private static class Glob {
+        private final Pattern pattern;
+        private final String extension;
+
+        private Glob(String pattern) {
+            this.pattern = Pattern.compile(ScanOptions.toRegex(pattern), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            String extension = DirectoryWalker.getFileExtension(pattern);
+            this.extension = extension.isEmpty() || isGlob(extension) ? null : ExtensionIndex.normalize(extension);
+        }
+    }
+
+    private SortRules(List<Rule> rules) {
+        this.ruleCount = rules.size();
+
+        // Every extension named by a rule gets its own list of candidate rules
+        LinkedHashSet<String> extensions = new LinkedHashSet<>();
+        for (Rule rule : rules) {
+            extensions.addAll(rule.extensions);
+            for (Glob glob : rule.globs) {
+                if (glob.extension != null) {
+                    extensions.add(glob.extension);
+                }
+            }
+        }
+        for (String extension : extensions) {
+            this.rulesByExtension.put(extension, candidates(rules, extension));
+        }
+        this.otherRules = candidates(rules, null);
+    }
+
+    /**
+     * Lists the rules that may match files with an extension, in order, up to the first that always matches them.
+     * @param rules - All rules, in order.
+     * @param extension - The normalized extension, or null for an extension no rule names.
+     * @return - The candidate rules.
+     */
+    private static Rule[] candidates(List<Rule> rules, String extension) {
+        ArrayList<Rule> candidates = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.canMatch(extension)) {
+                candidates.add(rule);
+                if (rule.matchesAll(extension)) {
+                    break; // Later rules can never be reached for this extension
+                }
+            }
+        }
+        return candidates.toArray(new Rule[0]);
+    }
+
+    /**
+     * Compiles a rule set.
+     * @param rules - The rules, in order of precedence.
+     * @return - The compiled rules.
+     */
+    public static SortRules compile(List<Rule> rules) {
+        return new SortRules(rules);
+    }
+
+    /**
+     * Parses and compiles rules in text form.
+     * @param lines - The rule lines.
+     * @return - The compiled rules.
+     * @throws IllegalArgumentException - If a line is not a valid rule; the message names the line.
+     */
+    public static SortRules parse(List<String> lines) {
+        ArrayList<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(line));
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + exception.getMessage());
+            }
+        }
+        return compile(rules);
+    }
+
+    /**
+     * Reads and compiles a rules file.
+     * @param file - The rules file.
+     * @return - The compiled rules.
+     * @throws IOException - If the file cannot be read.
+     * @throws IllegalArgumentException - If a line is not a valid rule.
+     */
+    public static SortRules load(Path file) throws IOException {
+        return parse(Files.readAllLines(file));
+    }
+
+    /**
+     * Returns the default rules file, in the user's home directory.
+     * @return - The default rules file.
+     */
+    public static Path defaultFile() {
+        return Path.of(System.getProperty("user.home"), ".filesorter", "rules.txt");
+    }
+
+    /**
+     * Returns the number of rules.
+     * @return - The number of rules.
+     */
+    public int size() {
+        return this.ruleCount;
+    }
+
+    /**
+     * Works out the folder a file is sorted into.
+     * @param fileName - The name of the file.
+     * @param extension - The normalized extension the file is sorted by.
+     * @param size - The size of the file in bytes.
+     * @param modifiedTime - The modification time of the file in milliseconds since the epoch, or 0 if it is not known.
+     * @return - The folder within Output, using the platform's name separator.
+     */
+    public String folderFor(String fileName, String extension, long size, long modifiedTime) {
+        Rule[] candidates = this.rulesByExtension.get(extension);
+        for (Rule rule : candidates == null ? this.otherRules : candidates) {
+            if (rule.matches(fileName, extension)) {
+                return rule.folderFor(size, modifiedTime);
+            }
+        }
+        return extension + " files";
+    }
+
+    private static Rule parseRule(String line) {
+        int equals = line.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("Expected <folder> = <matchers>");
+        }
+        String folder = line.substring(0, equals).trim();
+        String[] parts = line.substring(equals + 1).split(";");
+
+        List<String> matchers = Arrays.stream(parts[0].trim().split("[,\\s]+")).filter(matcher -> !matcher.isEmpty()).toList();
+        DateLayout dateLayout = DateLayout.NONE;
+        long[] sizeLimits = new long[0];
+        for (int i = 1; i < parts.length; i++) {
+            String option = parts[i].trim();
+            if (option.equals("date=year")) {
+                dateLayout = DateLayout.YEAR;
+            } else if (option.equals("date=month")) {
+                dateLayout = DateLayout.MONTH;
+            } else if (option.startsWith("size=")) {
+                sizeLimits = Arrays.stream(option.substring("size=".length()).split(",")).mapToLong(SortRules::parseSize).toArray();
+            } else if (!option.isEmpty()) {
+                throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        return new Rule(folder, matchers, dateLayout, sizeLimits);
+    }
+
+    private static long parseSize(String size) {
+        String trimmed = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        for (String suffix : new String[] {"KB", "MB", "GB"}) {
+            unit *= 1024;
+            if (trimmed.endsWith(suffix)) {
+                trimmed = trimmed.substring(0, trimmed.length() - 2).trim();
+                try {
+                    return Long.parseLong(trimmed) * unit;
+                } catch (NumberFormatException exception) {
+                    throw new IllegalArgumentException("Not a size: " + size);
+                }
+            }
+        }
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Not a size: " + size);
+        }
+    }
+
+    /**
+     * Names the size bucket folders of a rule, e.g. "Under 1 MB", "1 MB to 100 MB" and "100 MB and over".
+     */
+    private static String[] sizeFolders(long[] sizeLimits) {
+        if (sizeLimits.length == 0) {
+            return new String[0];
+        }
+        String[] folders = new String[sizeLimits.length + 1];
+        folders[0] = "Under " + formatSize(sizeLimits[0]);
+        for (int i = 1; i < sizeLimits.length; i++) {
+            folders[i] = formatSize(sizeLimits[i - 1]) + " to " + formatSize(sizeLimits[i]);
+        }
+        folders[sizeLimits.length] = formatSize(sizeLimits[sizeLimits.length - 1]) + " and over";
+        return folders;
+    }
+
+    private static String formatSize(long bytes) {
+        String[] units = {"bytes", "KB", "MB", "GB"};
+        int unit = 0;
+        while (unit < units.length - 1 && bytes >= 1024 && bytes % 1024 == 0) {
+            bytes /= 1024;
+            unit++;
+        }
+        return bytes + " " + units[unit];
+    }
+
+    /**
+     * Checks whether a pattern uses glob syntax, rather than being a plain name.
+     * @param pattern - The pattern.
+     * @return - True if the pattern contains glob special characters.
+     */
+    static boolean isGlob(String pattern) {
+        for (char c : pattern.toCharArray()) {
+            if ("*?[]{}\\".indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.components;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Instant;
+
+/**
+ * Measures how long the application takes to launch, counted from JVM process start.
+ * Time-to-first-frame is reached when the main window opens; time-to-interactive once the
+ * event dispatch thread has painted it and is free to handle input.
+ * Run with -Dfilesorter.startupTiming=true to print both figures.
+ */
+public final class StartupTimer {
+    private static final String PROPERTY = "filesorter.startupTiming";
+    private static final long START_MILLIS = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static volatile long firstFrameMillis = -1;
+    private static volatile long interactiveMillis = -1;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Watches the main window to record time-to-first-frame and time-to-interactive.
+     * @param frame - The main window, before it is made visible.
+     */
+    public static void attach(JFrame frame) {
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                firstFrameMillis = System.currentTimeMillis() - START_MILLIS;
+
+                // Runs once the pending paint events for the new window are handled
+                SwingUtilities.invokeLater(() -> {
+                    interactiveMillis = System.currentTimeMillis() - START_MILLIS;
+                    if (Boolean.getBoolean(PROPERTY)) {
+                        System.out.println("Startup: first frame after " + firstFrameMillis + " ms, interactive after " + interactiveMillis + " ms");
+                    }
+                });
+                frame.removeWindowListener(this);
+            }
+        });
+    }
+
+    /**
+     * Getter for firstFrameMillis.
+     * @return - Milliseconds from JVM start until the main window opened, or -1 if it has not opened yet.
+     */
+    public static long getFirstFrameMillis() {
+        return firstFrameMillis;
+    }
+
+    /**
+     * Getter for interactiveMillis.
+     * @return - Milliseconds from JVM start until the GUI could handle input, or -1 if not reached yet.
+     */
+    public static long getInteractiveMillis() {
+        return interactiveMillis;
+    }
+}
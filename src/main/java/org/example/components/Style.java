@@ -0,0 +1,87 @@
+package org.example.components;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shared fonts and colors for the GUI.
+ * Each Roboto font is parsed once, on a background thread, and the derived fonts and colors are shared by all components.
+ */
+public final class Style {
+    private static final Color WHITE = new Color(255, 255, 255);
+    private static final Color BLUE = new Color(82, 173, 200);
+    private static final Color GREEN = new Color(76, 175, 80);
+    private static final Color DEFAULT_COLOR = new Color(255);
+
+    private static volatile Map<String, CompletableFuture<Font>> fonts;
+
+    private Style() {
+    }
+
+    /**
+     * Starts loading the fonts in parallel, so they are ready by the time the first component needs them.
+     * Calling this more than once has no further effect.
+     */
+    public static void preload() {
+        if (fonts == null) {
+            synchronized (Style.class) {
+                if (fonts == null) {
+                    fonts = Map.of(
+                            "bold", loadFont("/Fonts/Roboto-Bold.ttf", 16),
+                            "regular", loadFont("/Fonts/Roboto-Regular.ttf", 14),
+                            "light", loadFont("/Fonts/Roboto-Light.ttf", 12)
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves a font based on the given style, waiting for it to finish loading if needed.
+     * @param fontWeight - The style of the font (e.g., "regular", "bold", "light").
+     * @return - The font with the specified style, or null if it could not be loaded.
+     */
+    public static Font getFont(String fontWeight) {
+        preload();
+        CompletableFuture<Font> font = fonts.get(fontWeight);
+        return font == null ? null : font.join();
+    }
+
+    /**
+     * Retrieves a color based on the given name.
+     * @param color - The name of the color (e.g., "white", "blue", "green").
+     * @return - The color with the specified name.
+     */
+    public static Color getColor(String color) {
+        return switch (color) {
+            case "white" -> WHITE;
+            case "blue" -> BLUE;
+            case "green" -> GREEN;
+            default -> {
+                System.out.println("Could not find color. Returning default.");
+                yield DEFAULT_COLOR;
+            }
+        };
+    }
+
+    /**
+     * Parses a TrueType font from the classpath on a background thread.
+     * @param resource - The classpath location of the font.
+     * @param size - The point size to derive.
+     * @return - A future holding the font, or null if it could not be loaded.
+     */
+    private static CompletableFuture<Font> loadFont(String resource, float size) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream inputStream = Style.class.getResourceAsStream(resource)) {
+                return Font.createFont(Font.TRUETYPE_FONT, Objects.requireNonNull(inputStream)).deriveFont(Font.PLAIN, size);
+            } catch (Exception e) {
+                System.out.println("Error with getFont: " + e);
+                return null;
+            }
+        });
+    }
+}
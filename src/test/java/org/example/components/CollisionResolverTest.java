@@ -0,0 +1,91 @@
+package org.example.components;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollisionResolverTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void renamesToFirstFreeName() throws IOException {
+        Path folder = Files.createDirectories(tempDir.resolve("Output/Text"));
+        Files.writeString(folder.resolve("a.txt"), "existing");
+        Files.writeString(folder.resolve("a (2).txt"), "existing");
+
+        MovePlan plan = new CollisionResolver(CollisionResolver.Policy.RENAME).resolve(new MovePlan(List.of(
+                move("one/a.txt", folder), move("one/b.txt", folder), move("two/b.txt", folder))));
+
+        assertEquals(List.of(folder.resolve("a (3).txt"), folder.resolve("b.txt"), folder.resolve("b (2).txt")),
+                plan.getMoves().stream().map(MoveEngine.Move::getDestination).toList());
+        assertTrue(plan.getSkipped().isEmpty());
+    }
+
+    @Test
+    void skipsTakenNames() throws IOException {
+        Path folder = Files.createDirectories(tempDir.resolve("Output/Text"));
+        Files.writeString(folder.resolve("a.txt"), "existing");
+
+        MovePlan plan = new CollisionResolver(CollisionResolver.Policy.SKIP).resolve(new MovePlan(List.of(
+                move("one/a.txt", folder), move("one/b.txt", folder), move("two/b.txt", folder))));
+
+        assertEquals(List.of(tempDir.resolve("one/b.txt")), plan.getMoves().stream().map(MoveEngine.Move::getSource).toList());
+        assertEquals(List.of(tempDir.resolve("one/a.txt"), tempDir.resolve("two/b.txt")),
+                plan.getSkipped().stream().map(MoveResult.Outcome::getSource).toList());
+    }
+
+    @Test
+    void overwritesOnlyWithNewerFiles() throws IOException {
+        Path folder = Files.createDirectories(tempDir.resolve("Output/Text"));
+        Path existing = Files.writeString(folder.resolve("a.txt"), "existing");
+        Files.setLastModifiedTime(existing, FileTime.fromMillis(2_000_000));
+        Path newer = sourceFile("one/a.txt", 3_000_000);
+        Path older = sourceFile("two/a.txt", 1_000_000);
+
+        MovePlan plan = new CollisionResolver(CollisionResolver.Policy.OVERWRITE_IF_NEWER).resolve(new MovePlan(List.of(
+                new MoveEngine.Move(newer, folder.resolve("a.txt"), 1), new MoveEngine.Move(older, folder.resolve("a.txt"), 1))));
+
+        assertEquals(1, plan.getFileCount());
+        MoveEngine.Move move = plan.getMoves().get(0);
+        assertEquals(newer, move.getSource());
+        assertTrue(move.isReplaceExisting());
+        assertEquals(List.of(older), plan.getSkipped().stream().map(MoveResult.Outcome::getSource).toList());
+    }
+
+    @Test
+    void keepsNewerPlannedFileOverOlderOne() throws IOException {
+        Path folder = tempDir.resolve("Output/Text");
+        Path older = sourceFile("one/a.txt", 1_000_000);
+        Path newer = sourceFile("two/a.txt", 2_000_000);
+
+        MovePlan plan = new CollisionResolver(CollisionResolver.Policy.OVERWRITE_IF_NEWER).resolve(new MovePlan(List.of(
+                new MoveEngine.Move(older, folder.resolve("a.txt"), 1), new MoveEngine.Move(newer, folder.resolve("a.txt"), 1))));
+
+        assertEquals(List.of(newer), plan.getMoves().stream().map(MoveEngine.Move::getSource).toList());
+        assertFalse(plan.getMoves().get(0).isReplaceExisting());
+        assertEquals(List.of(older), plan.getSkipped().stream().map(MoveResult.Outcome::getSource).toList());
+    }
+
+    private MoveEngine.Move move(String source, Path folder) {
+        Path file = tempDir.resolve(source);
+        return new MoveEngine.Move(file, folder.resolve(file.getFileName()), 1);
+    }
+
+    private Path sourceFile(String path, long modifiedMillis) throws IOException {
+        Path file = tempDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, path);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+        return file;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.components;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveJournalTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void keepsPlannedMovesAcrossReopen() throws IOException {
+        Path journalFile = tempDir.resolve("sort.journal");
+        MoveEngine.Move plain = new MoveEngine.Move(Path.of("/in/a.txt"), Path.of("/out/Text/a.txt"), 10);
+        MoveEngine.Move replacing = new MoveEngine.Move(Path.of("/in/b.jpg"), Path.of("/out/Images/b.jpg"), 20, null, true);
+        MoveEngine.Move linked = new MoveEngine.Move(Path.of("/in/c.jpg"), Path.of("/out/Images/c.jpg"), 30,
+                Path.of("/out/Images/b.jpg"), false);
+
+        try (MoveJournal journal = MoveJournal.start(journalFile, List.of(plain, replacing, linked))) {
+            journal.complete(plain, MoveResult.Status.MOVED);
+        }
+
+        try (MoveJournal journal = MoveJournal.open(journalFile)) {
+            assertEquals(List.of(Path.of("/in/a.txt")), journal.getCompletedMoves().stream().map(MoveEngine.Move::getSource).toList());
+
+            List<MoveEngine.Move> pending = journal.getPendingMoves();
+            assertEquals(2, pending.size());
+            assertEquals(Path.of("/in/b.jpg"), pending.get(0).getSource());
+            assertEquals(Path.of("/out/Images/b.jpg"), pending.get(0).getDestination());
+            assertEquals(20, pending.get(0).getSize());
+            assertTrue(pending.get(0).isReplaceExisting());
+            assertNull(pending.get(0).getLinkTarget());
+
+            assertFalse(pending.get(1).isReplaceExisting());
+            assertEquals(Path.of("/out/Images/b.jpg"), pending.get(1).getLinkTarget());
+        }
+    }
+
+    @Test
+    void ignoresTornGroup() throws IOException {
+        Path journalFile = tempDir.resolve("sort.journal");
+        MoveEngine.Move move = new MoveEngine.Move(Path.of("/in/a.txt"), Path.of("/out/Text/a.txt"), 10);
+        MoveJournal.start(journalFile, List.of(move)).close();
+        long planLength = Files.size(journalFile);
+
+        try (MoveJournal journal = MoveJournal.open(journalFile)) {
+            journal.complete(journal.getPendingMoves().get(0), MoveResult.Status.MOVED);
+        }
+        // Cut the completion group short, as a crash during its write would
+        try (SeekableByteChannel channel = Files.newByteChannel(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(journalFile) - 3);
+        }
+
+        try (MoveJournal journal = MoveJournal.open(journalFile)) {
+            assertEquals(1, journal.getPendingMoves().size());
+            assertTrue(journal.getCompletedMoves().isEmpty());
+        }
+        assertEquals(planLength, Files.size(journalFile));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.components;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanOptionsTest {
+    @Test
+    void matchesNamesAnywhere() {
+        ScanOptions options = new ScanOptions();
+        options.addExclude("node_modules");
+        options.addExclude(".*");
+
+        assertFalse(options.acceptsFolder("", "node_modules", 1));
+        assertFalse(options.acceptsFolder("web/app", "node_modules", 3));
+        assertFalse(options.acceptsFile("docs", ".hidden", 2));
+        assertTrue(options.acceptsFolder("", "src", 1));
+    }
+
+    @Test
+    void trailingDoubleStarMatchesFolderItself() {
+        ScanOptions options = new ScanOptions();
+        options.addExclude("build/**");
+
+        assertFalse(options.acceptsFolder("", "build", 1));
+        assertFalse(options.acceptsFile("build/classes", "Main.class", 3));
+        assertTrue(options.acceptsFolder("", "builder", 1));
+        assertTrue(options.acceptsFolder("src", "build", 2));
+    }
+
+    @Test
+    void leadingDoubleStarMatchesAnyDepth() {
+        ScanOptions options = new ScanOptions();
+        options.addExclude("**/target/**");
+
+        assertFalse(options.acceptsFolder("", "target", 1));
+        assertFalse(options.acceptsFolder("a/b", "target", 3));
+        assertTrue(options.acceptsFolder("a/b", "targets", 3));
+    }
+
+    @Test
+    void singleStarAndQuestionMarkStayWithinAName() {
+        ScanOptions options = new ScanOptions();
+        options.addExclude("logs/*.log");
+        options.addExclude("tmp?");
+
+        assertFalse(options.acceptsFile("logs", "app.log", 2));
+        assertTrue(options.acceptsFile("logs/old", "app.log", 3));
+        assertFalse(options.acceptsFolder("", "tmp1", 1));
+        assertTrue(options.acceptsFolder("", "tmp12", 1));
+    }
+
+    @Test
+    void includesKeepOnlyMatchingFiles() {
+        ScanOptions options = new ScanOptions();
+        options.addInclude("*.{jpg,png}");
+        options.addInclude("[!a]*.txt");
+
+        assertTrue(options.acceptsFile("photos", "cat.jpg", 2));
+        assertTrue(options.acceptsFile("", "dog.png", 1));
+        assertFalse(options.acceptsFile("", "cat.gif", 1));
+        assertTrue(options.acceptsFile("", "notes.txt", 1));
+        assertFalse(options.acceptsFile("", "about.txt", 1));
+        // Includes never prune folders
+        assertTrue(options.acceptsFolder("", "photos", 1));
+    }
+
+    @Test
+    void limitsDepth() {
+        ScanOptions options = new ScanOptions();
+        options.setMaxDepth(2);
+
+        assertTrue(options.acceptsFile("a", "f.txt", 2));
+        assertFalse(options.acceptsFile("a/b", "f.txt", 3));
+        assertTrue(options.acceptsFolder("", "a", 1));
+        assertFalse(options.acceptsFolder("a", "b", 2));
+    }
+}
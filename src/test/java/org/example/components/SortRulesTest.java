@@ -0,0 +1,29 @@
+package org.example.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SortRulesTest {
+    @Test
+    void matchesGlobsRegardlessOfCase() {
+        SortRules rules = SortRules.parse(List.of("Camera = IMG_*.jpg", "Documents = .PDF"));
+
+        assertEquals("Camera", rules.folderFor("IMG_1.JPG", ".jpg", 1, 0));
+        assertEquals("Camera", rules.folderFor("img_2.jpg", ".jpg", 1, 0));
+        assertNotEquals("Camera", rules.folderFor("DSC_1.JPG", ".jpg", 1, 0));
+        assertEquals("Documents", rules.folderFor("report.pdf", ".pdf", 1, 0));
+    }
+
+    @Test
+    void matchesGlobsWithoutFixedExtension() {
+        SortRules rules = SortRules.parse(List.of("Scans = scan_[ab]*"));
+
+        assertEquals("Scans", rules.folderFor("SCAN_A1.tiff", ".tiff", 1, 0));
+        assertEquals("Scans", rules.folderFor("scan_b.png", ".png", 1, 0));
+        assertNotEquals("Scans", rules.folderFor("scan_c.png", ".png", 1, 0));
+    }
+}